@@ -0,0 +1,108 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Approximate post totals for pagers. A COUNT(*) over posts costs more than the page query on a large table,
+so the result is kept for a while and only recomputed when it expires or a post is created or deleted.
+A COUNT only stores its result if its key wasn't invalidated while it ran, same as PostDtoCache: each COUNT
+registers a token, invalidate removes it, and the check and the store happen under the lock invalidate takes.
+ */
+@Component
+public class PostCountCache {
+    private PostRepository postRepository;
+    private long ttlNanos;
+
+    private final Object totalLock = new Object();
+    private volatile CachedCount total;
+    private Object totalLoading; // token of the running COUNT over all posts, guarded by totalLock
+    private Map<Long, CachedCount> byCategory = new ConcurrentHashMap<>();
+    private Map<Long, Object> loadingByCategory = new ConcurrentHashMap<>(); // category id -> token of the running COUNT
+
+    public PostCountCache(PostRepository postRepository,
+                          @Value("${app.post-count-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.postRepository = postRepository;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public long countAll(){
+        CachedCount cached = total;
+        if(cached != null && !cached.isExpired(ttlNanos)){
+            return cached.value;
+        }
+        Object token = new Object();
+        synchronized (totalLock) {
+            totalLoading = token;
+        }
+        CachedCount loaded = new CachedCount(postRepository.count());
+        synchronized (totalLock) {
+            // a create or delete that happened while we were counting removed the token
+            if(totalLoading == token){
+                total = loaded;
+                totalLoading = null;
+            }
+        }
+        return loaded.value;
+    }
+
+    public long countByCategory(Long categoryId){
+        CachedCount cached = byCategory.get(categoryId);
+        if(cached != null && !cached.isExpired(ttlNanos)){
+            return cached.value;
+        }
+        Object token = new Object();
+        loadingByCategory.put(categoryId, token);
+        try {
+            CachedCount loaded = new CachedCount(postRepository.countByCategoryId(categoryId));
+            byCategory.compute(categoryId,
+                    (id, current) -> loadingByCategory.remove(id, token) ? loaded : current);
+            return loaded.value;
+        } finally {
+            loadingByCategory.remove(categoryId, token);
+        }
+    }
+
+    // call after a post was created in or deleted from the category
+    public void invalidate(Long categoryId){
+        invalidateTotal();
+        if(categoryId != null){
+            byCategory.compute(categoryId, (id, current) -> {
+                loadingByCategory.remove(id);
+                return null;
+            });
+        }
+    }
+
+    // call after a bulk change that may have touched any category
+    public void invalidateAll(){
+        invalidateTotal();
+        loadingByCategory.clear();
+        byCategory.clear();
+    }
+
+    private void invalidateTotal(){
+        synchronized (totalLock) {
+            totalLoading = null;
+            total = null;
+        }
+    }
+
+    private static class CachedCount {
+        private final long value;
+        private final long loadedAt = System.nanoTime();
+
+        CachedCount(long value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long ttlNanos){
+            return System.nanoTime() - loadedAt > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.springboot.blog.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springboot.blog.payload.PostDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+Ready-made PostDTOs for GET /api/posts/{id}, bounded by size and by time since the entry was loaded.
+Caffeine evicts with W-TinyLFU: a new entry only gets in if it is used more often than the one it would
+push out, so a crawler reading every post once can't flush the hot posts.
+Hit ratio, evictions and load times are published as the cache.* metrics tagged cache=posts.
+Every write that changes what a PostDTO shows (the post or any of its comments) must call invalidate.
+Concurrent misses on the same post share one load through SingleFlight, so an expiring hot entry
+causes one database read and not one per waiting request.
+A load only stores its result if its post wasn't invalidated while it ran. Each load registers a token under
+its post id, invalidate removes it, and the check and the store happen in one compute on the cache entry, the
+same lock invalidate takes. Writes to other posts don't affect the load.
+ */
+@Component
+public class PostDtoCache {
+    private Cache<Long, PostDTO> cache;
+    private SingleFlight<Long, PostDTO> loads = new SingleFlight<>();
+    private ConcurrentHashMap<Long, Object> loading = new ConcurrentHashMap<>(); // post id -> token of the running load
+
+    public PostDtoCache(MeterRegistry meterRegistry,
+                        @Value("${app.post-cache.max-size:10000}") long maxSize,
+                        @Value("${app.post-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "posts");
+    }
+
+    // returns the cached post or loads it, an exception from the loader is passed on and nothing is cached
+    public PostDTO get(long postId, Function<Long, PostDTO> loader){
+        PostDTO cached = cache.getIfPresent(postId);
+        if(cached != null){
+            return cached;
+        }
+        return loads.load(postId, () -> {
+            Object token = new Object();
+            loading.put(postId, token);
+            try {
+                PostDTO loaded = loader.apply(postId);
+                // a write that committed while we were loading removed the token, this copy may be stale then
+                cache.asMap().compute(postId, (id, current) -> loading.remove(id, token) ? loaded : current);
+                return loaded;
+            } finally {
+                loading.remove(postId, token);
+            }
+        });
+    }
+
+    // a cached PostDTO carries the version it was loaded with, which is current as long as it is cached
+    public PostDTO getIfPresent(long postId){
+        return cache.getIfPresent(postId);
+    }
+
+    public void invalidate(long postId){
+        loads.forget(postId);
+        cache.asMap().compute(postId, (id, current) -> {
+            loading.remove(id);
+            return null;
+        });
+    }
+
+    // for bulk deletes that may have removed any number of posts
+    public void invalidateAll(){
+        loads.forgetIf(postId -> true);
+        loading.clear();
+        cache.invalidateAll();
+    }
+}
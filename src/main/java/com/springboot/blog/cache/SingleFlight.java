@@ -0,0 +1,61 @@
+package com.springboot.blog.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+Request coalescing: while a value for a key is being loaded, other callers asking for the same key wait
+for that load instead of starting their own. The first caller runs the loader on its own thread, the
+others share its result (or its exception).
+In-flight loads are registered in a ConcurrentHashMap, which only locks a single bin for the moment a
+load is registered or removed and never while the loader runs, so loads of unrelated keys don't contend.
+ */
+public class SingleFlight<K, V> {
+    private ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V load(K key, Supplier<V> loader){
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if(existing != null){
+            return await(existing);
+        }
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex){
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // after a write, callers arriving from now on start a fresh load instead of joining one that may have read old data
+    public void forget(K key){
+        inFlight.remove(key);
+    }
+
+    // forget for every key the predicate matches, walks the loads in flight which are few
+    public void forgetIf(Predicate<K> matches){
+        inFlight.keySet().removeIf(matches);
+    }
+
+    private V await(CompletableFuture<V> flight){
+        try {
+            return flight.join();
+        } catch (CompletionException ex){
+            // rethrow what the loader threw, e.g. ResourceNotFoundException so the caller still gets a 404
+            if(ex.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            if(ex.getCause() instanceof Error error){
+                throw error;
+            }
+            throw ex;
+        }
+    }
+}
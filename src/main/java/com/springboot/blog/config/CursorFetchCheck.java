@@ -0,0 +1,54 @@
+package com.springboot.blog.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.util.Locale;
+
+/*
+The export (PostRepository.streamAllOrderById) relies on the JDBC fetch size to read posts a chunk at a time.
+MySQL Connector/J ignores the fetch size unless the url has useCursorFetch=true and reads the whole result into
+memory instead, so spring.datasource.url must look like
+    jdbc:mysql://host:3306/blog?useCursorFetch=true
+Checked once at startup, a url without it only logs a warning since everything but the export works the same.
+ */
+@Component
+public class CursorFetchCheck {
+    private static final Logger logger = LoggerFactory.getLogger(CursorFetchCheck.class);
+
+    private JdbcTemplate jdbcTemplate;
+
+    public CursorFetchCheck(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void check(){
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if("MySQL".equalsIgnoreCase(metaData.getDatabaseProductName()) && !usesCursorFetch(metaData.getURL())){
+                logger.warn("spring.datasource.url has no useCursorFetch=true, the post export will read every post " +
+                        "into memory at once. Add it, e.g. jdbc:mysql://host:3306/blog?useCursorFetch=true");
+            }
+            return null;
+        });
+    }
+
+    static boolean usesCursorFetch(String url){
+        int query = url == null ? -1 : url.indexOf('?');
+        if(query < 0){
+            return false;
+        }
+        for (String parameter : url.substring(query + 1).split("&")) {
+            if(parameter.toLowerCase(Locale.ROOT).equals("usecursorfetch=true")){
+                return true;
+            }
+        }
+        return false;
+    }
+}
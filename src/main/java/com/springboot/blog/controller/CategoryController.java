@@ -2,6 +2,8 @@ package com.springboot.blog.controller;
 
 import com.springboot.blog.entity.Category;
 import com.springboot.blog.payload.CategoryDTO;
+import com.springboot.blog.payload.CategoryDeletionStatus;
+import com.springboot.blog.payload.ResourceVersion;
 import com.springboot.blog.service.CategoryService;
 import org.apache.coyote.Response;
 import org.springframework.http.HttpStatus;
@@ -9,7 +11,9 @@ import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -30,7 +34,11 @@ public class CategoryController {
     }
 
     @GetMapping("{id}")
-    public ResponseEntity<CategoryDTO> getCategory(@PathVariable("id") Long categoryId){
+    public ResponseEntity<CategoryDTO> getCategory(@PathVariable("id") Long categoryId, WebRequest webRequest){
+        ResourceVersion version = categoryService.getCategoryVersion(categoryId);
+        if(webRequest.checkNotModified(version.eTag("category"), version.lastModified())){
+            return null; // 304
+        }
         CategoryDTO categoryDTO = categoryService.getCategory(categoryId);
         return ResponseEntity.ok(categoryDTO);
     }
@@ -46,10 +54,17 @@ public class CategoryController {
                                                       @PathVariable("id") Long categoryId){
         return ResponseEntity.ok(categoryService.updateCategory(categoryDTO, categoryId));
     }
+    // the category and its posts are deleted in the background, poll the Location for progress
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("{id}")
-    public ResponseEntity<String> deleteCategory(@PathVariable("id") Long categoryId){
-        categoryService.deleteCategory(categoryId);
-        return ResponseEntity.ok("Category deleted successfully!");
+    public ResponseEntity<CategoryDeletionStatus> deleteCategory(@PathVariable("id") Long categoryId){
+        CategoryDeletionStatus status = categoryService.deleteCategory(categoryId);
+        return ResponseEntity.accepted().location(URI.create("/api/categories/deletions/" + status.getJobId())).body(status);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("deletions/{jobId}")
+    public ResponseEntity<CategoryDeletionStatus> getDeletionStatus(@PathVariable("jobId") String jobId){
+        return ResponseEntity.ok(categoryService.getDeletionStatus(jobId));
     }
 }
@@ -1,13 +1,23 @@
 package com.springboot.blog.controller;
 
+import com.springboot.blog.payload.CommentBatchRequest;
 import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.CommentPatchDTO;
+import com.springboot.blog.payload.CursorResponse;
+import com.springboot.blog.payload.ResourceVersion;
 import com.springboot.blog.service.CommentService;
+import com.springboot.blog.utils.AppConstants;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/")
@@ -23,14 +33,72 @@ public class CommentController {
     This tells Spring to take the body of the web request and convert it into a CommentDTO object, which can then be used within your createComment method.
      */
     @PostMapping("/posts/{postId}/comments")
-    public ResponseEntity<CommentDTO> createComment(@PathVariable(value = "postId") long postId,
-                                                    @Valid @RequestBody CommentDTO commentDTO){
+    public ResponseEntity<?> createComment(@PathVariable(value = "postId") long postId,
+                                           @Valid @RequestBody CommentDTO commentDTO){
+        // with write-behind on, 202 and a receipt now, the comment is written shortly after. Replies are written
+        // right away, the queue only takes top-level comments
+        if(commentService.queuesComments() && commentDTO.getParentId() == null){
+            return new ResponseEntity<>(commentService.queueComment(postId, commentDTO), HttpStatus.ACCEPTED);
+        }
         return new ResponseEntity<>(commentService.createComment(postId, commentDTO), HttpStatus.CREATED);
     }
 
+    // many comments for one or many posts in one request, answers with the new comment ids in the same order
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/comments/batch")
+    public ResponseEntity<List<Long>> createComments(@Valid @RequestBody CommentBatchRequest commentBatchRequest){
+        return new ResponseEntity<>(commentService.createComments(commentBatchRequest.getComments()), HttpStatus.CREATED);
+    }
+
+    // pages through the comments with a cursor, pass nextCursor back as after to get the next page
     @GetMapping("/posts/{postId}/comments")
-    public List<CommentDTO> getCommentByPostId(@PathVariable(value = "postId") Long postId){
-        return commentService.getCommentsByPostId(postId);
+    public CursorResponse<CommentDTO> getCommentByPostId(
+            @PathVariable(value = "postId") Long postId,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest){
+        // every comment write bumps the post's version, so it also versions the comment list. Each page is its own
+        // representation, and only the ETag is checked because a Last-Modified shared by all pages can't tell them apart
+        Optional<ResourceVersion> version = commentService.findCommentsVersion(postId);
+        String page = "comments-" + sortDir.toLowerCase() + "-" + pageSize + "-" + (after == null ? "first" : after);
+        if(version.isPresent() && webRequest.checkNotModified(version.get().eTag(page))){
+            return null; // 304
+        }
+        return commentService.getCommentsByPostId(postId, after, pageSize, sortDir);
+    }
+
+    // Server-Sent Events "created", "updated" and "deleted" (data {"id": ...}) for the post's comments, instead of polling
+    @GetMapping(value = "/posts/{postId}/comments/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamComments(@PathVariable(value = "postId") Long postId){
+        return commentService.streamComments(postId);
+    }
+
+    // the post's comments as threads, each reply right after its parent
+    @GetMapping("/posts/{postId}/comments/thread")
+    public CursorResponse<CommentDTO> getCommentThreads(
+            @PathVariable(value = "postId") Long postId,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int pageSize){
+        return commentService.getCommentThread(postId, null, after, pageSize);
+    }
+
+    // one comment followed by all replies under it
+    @GetMapping("/posts/{postId}/comments/{commentId}/thread")
+    public CursorResponse<CommentDTO> getCommentThread(
+            @PathVariable(value = "postId") Long postId,
+            @PathVariable(value = "commentId") Long commentId,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int pageSize){
+        return commentService.getCommentThread(postId, commentId, after, pageSize);
+    }
+
+    // moves a comment with its replies under another comment of the post, no parentId makes it top-level
+    @PutMapping("/posts/{postId}/comments/{commentId}/parent")
+    public ResponseEntity<CommentDTO> moveComment(@PathVariable(value = "postId") Long postId,
+                                                  @PathVariable(value = "commentId") Long commentId,
+                                                  @RequestParam(value = "parentId", required = false) Long parentId){
+        return ResponseEntity.ok(commentService.moveComment(postId, commentId, parentId));
     }
 
     @GetMapping("/posts/{postId}/comments/{commentId}")
@@ -48,6 +116,13 @@ public class CommentController {
         return new ResponseEntity<>(updatedComment, HttpStatus.OK);
     }
 
+    @PatchMapping("/posts/{postId}/comments/{commentId}")
+    public ResponseEntity<CommentDTO> patchCommentById(@PathVariable(value = "postId") Long postId,
+                                                       @PathVariable(value = "commentId") Long commentId,
+                                                       @Valid @RequestBody CommentPatchDTO commentPatchDTO){
+        return ResponseEntity.ok(commentService.patchCommentById(postId, commentId, commentPatchDTO));
+    }
+
     @DeleteMapping("/posts/{postId}/comments/{commentId}")
     public ResponseEntity<String> deleteCommentById(@PathVariable(value = "postId") Long postId,
                                                     @PathVariable(value = "commentId") Long commentId){
@@ -1,20 +1,38 @@
 package com.springboot.blog.controller;
 
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.CursorResponse;
 import com.springboot.blog.payload.PostDTO;
+import com.springboot.blog.payload.PostImportReport;
+import com.springboot.blog.payload.PostPatchDTO;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostSearchResponse;
+import com.springboot.blog.payload.PostSummaryResponse;
+import com.springboot.blog.payload.ResourceVersion;
+import com.springboot.blog.payload.TrendingPost;
+import com.springboot.blog.service.PostExportService;
+import com.springboot.blog.service.PostImportService;
 import com.springboot.blog.service.PostService;
 import com.springboot.blog.utils.AppConstants;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 
 @RestController
@@ -24,9 +42,14 @@ import java.util.List;
 )
 public class PostController {
     private PostService postService; // use interface, making implementation as loose coupling
+    private PostImportService postImportService;
+    private PostExportService postExportService;
 
-    public PostController(PostService postService) {
+    public PostController(PostService postService, PostImportService postImportService,
+                          PostExportService postExportService) {
         this.postService = postService;
+        this.postImportService = postImportService;
+        this.postExportService = postExportService;
     }
 
     //create blog post
@@ -48,6 +71,65 @@ public class PostController {
     }
 
 
+    //bulk import posts
+    @Operation(
+            summary = "Import Posts Rest API",
+            description = "Import Posts Rest API streams one post per line (NDJSON, comments nested) into the database " +
+                    "and reports throughput and the lines that failed"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @SecurityRequirement(
+            name = "Bear Authentication"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<PostImportReport> importPosts(InputStream ndjson){
+        return ResponseEntity.ok(postImportService.importPosts(ndjson));
+    }
+
+    @Operation(
+            summary = "Repair Comment Counts Rest API",
+            description = "Repair Comment Counts Rest API recomputes commentCount and lastCommentAt of every post from its comments"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @SecurityRequirement(
+            name = "Bear Authentication"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/comment-counts/repair")
+    public ResponseEntity<String> repairCommentCounts(){
+        long posts = postService.repairCommentCounts();
+        return ResponseEntity.ok("Comment counts recomputed for " + posts + " posts.");
+    }
+
+    //export all posts
+    @Operation(
+            summary = "Export Posts Rest API",
+            description = "Export Posts Rest API streams every post with its comments as NDJSON, gzip=true sends it as a .gz file"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @SecurityRequirement(
+            name = "Bear Authentication"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public void exportPosts(@RequestParam(value = "gzip", defaultValue = "false", required = false) boolean gzip,
+                            HttpServletResponse response) throws IOException {
+        // written straight to the response on this thread, so nothing is buffered and no async timeout applies
+        response.setContentType(gzip ? "application/gzip" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"posts.ndjson" + (gzip ? ".gz" : "") + "\"");
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024) : response.getOutputStream();
+        postExportService.exportPosts(out);
+    }
 
     //get all posts api
     @Operation(
@@ -63,9 +145,87 @@ public class PostController {
             @RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
             @RequestParam(value="sortBy", defaultValue = AppConstants.DEFAULT_SORT_BY, required = false) String sortBy,
+            @RequestParam(value="sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIR, required = false) String sortDir,
+            @RequestParam(value="count", defaultValue = AppConstants.DEFAULT_COUNT, required = false) String count
+    ){
+        return postService.getAllPosts(pageNo, pageSize, sortBy, sortDir, count);
+    }
+
+    //get post summaries api
+    @Operation(
+            summary = "Get Post Summaries Rest API",
+            description = "Get Post Summaries Rest API returns id, title, description, categoryId, commentCount and lastCommentAt of each post, " +
+                    "fields=title,commentCount limits the response to those columns. Totals are approximate"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @GetMapping("/summary")
+    public PostSummaryResponse getPostSummaries(
+            @RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value="sortBy", defaultValue = AppConstants.DEFAULT_SORT_BY, required = false) String sortBy,
+            @RequestParam(value="sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIR, required = false) String sortDir,
+            @RequestParam(value="fields", required = false) List<String> fields
+    ){
+        return postService.getPostSummaries(pageNo, pageSize, sortBy, sortDir, fields);
+    }
+
+    //get posts with keyset pagination
+    @Operation(
+            summary = "Scroll Posts Rest API",
+            description = "Scroll Posts Rest API pages through posts with a cursor, pass nextCursor back as after to get the next page. " +
+                    "pageSize is at most " + AppConstants.MAX_PAGE_SIZE
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @GetMapping("/scroll")
+    public CursorResponse<PostDTO> getPostsAfter(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value="sortBy", defaultValue = AppConstants.DEFAULT_SORT_BY, required = false) String sortBy,
             @RequestParam(value="sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIR, required = false) String sortDir
     ){
-        return postService.getAllPosts(pageNo, pageSize, sortBy, sortDir);
+        return postService.getPostsAfter(after, pageSize, sortBy, sortDir);
+    }
+
+    //search posts api
+    @Operation(
+            summary = "Search Posts Rest API",
+            description = "Search Posts Rest API returns the posts whose title, description or content match q, best matches first"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @GetMapping("/search")
+    public PostSearchResponse searchPosts(
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize
+    ){
+        return postService.searchPosts(query, pageNo, pageSize);
+    }
+
+    //trending posts api
+    @Operation(
+            summary = "Trending Posts Rest API",
+            description = "Trending Posts Rest API returns the most read and commented posts of the last hour or day, " +
+                    "recent activity weighs the most"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @GetMapping("/trending")
+    public List<TrendingPost> getTrendingPosts(
+            @RequestParam(value = "window", defaultValue = AppConstants.DEFAULT_TRENDING_WINDOW, required = false) String window,
+            @RequestParam(value = "limit", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int limit
+    ){
+        return postService.getTrendingPosts(window, limit);
     }
 
     // get post by id
@@ -77,8 +237,18 @@ public class PostController {
             responseCode = "200",
             description = "HTTP Status 200 SUCCESS"
     )
+    @ApiResponse(
+            responseCode = "304",
+            description = "HTTP Status 304 NOT MODIFIED, the If-None-Match / If-Modified-Since of the request still matches"
+    )
     @GetMapping("/{id}")
-    public ResponseEntity<PostDTO> getPostById(@PathVariable(name="id") long id){
+    public ResponseEntity<PostDTO> getPostById(@PathVariable(name="id") long id, WebRequest webRequest){
+        // only the version is read for the check, the post is loaded and serialized when it has changed
+        ResourceVersion version = postService.getPostVersion(id);
+        postService.recordView(id); // a 304 is a view too, the client shows its cached copy
+        if(webRequest.checkNotModified(version.eTag("post"), version.lastModified())){
+            return null; // 304, checkNotModified already set the status and headers
+        }
         return ResponseEntity.ok(postService.getPostByID(id));
     }
 
@@ -101,6 +271,23 @@ public class PostController {
     }
 
 
+    @Operation(
+            summary = "Patch Post By Id Rest API",
+            description = "Patch Post By Id Rest API changes only the fields sent in the body and writes only those columns"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PatchMapping("/{id}")
+    @SecurityRequirement(
+            name = "Bear Authentication"
+    )
+    public ResponseEntity<PostDTO> patchPost(@Valid @RequestBody PostPatchDTO postPatchDTO, @PathVariable(name="id") long id){
+        return ResponseEntity.ok(postService.patchPost(postPatchDTO, id));
+    }
+
     @Operation(
             summary = "Delete Post By Id Rest API",
             description = "Delete Post By Id Rest API is used to delete a post in the database"
@@ -120,9 +307,32 @@ public class PostController {
     }
 
     // build get post by category rest api
+    @Operation(
+            summary = "Get Posts By Category Rest API",
+            description = "Get Posts By Category Rest API pages through the posts of a category in id order, " +
+                    "view=summary (default) leaves out content and comments, view=full includes them. " +
+                    "count=cached or exact adds totalElement, the default none leaves it out. " +
+                    "Pass nextCursor back as after to get the next page"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "HTTP Status 200 SUCCESS"
+    )
     @GetMapping("/category/{id}")
-    public ResponseEntity<List<PostDTO>> getPostsByCategory(@PathVariable("id") Long categoryId){
-        List<PostDTO> postsDTOS = postService.getPostByCategory(categoryId);
-        return  ResponseEntity.ok(postsDTOS);
+    public ResponseEntity<CursorResponse<?>> getPostsByCategory(
+            @PathVariable("id") Long categoryId,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value="sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIR, required = false) String sortDir,
+            @RequestParam(value = "view", defaultValue = AppConstants.VIEW_SUMMARY, required = false) String view,
+            @RequestParam(value = "count", defaultValue = AppConstants.COUNT_NONE, required = false) String count
+    ){
+        if(view.equalsIgnoreCase(AppConstants.VIEW_FULL)){
+            return ResponseEntity.ok(postService.getPostsByCategory(categoryId, after, pageSize, sortDir, count));
+        }
+        if(view.equalsIgnoreCase(AppConstants.VIEW_SUMMARY)){
+            return ResponseEntity.ok(postService.getPostSummariesByCategory(categoryId, after, pageSize, sortDir, count));
+        }
+        throw new BlogAPIException(HttpStatus.BAD_REQUEST, "view must be one of summary or full");
     }
 }
@@ -1,15 +1,29 @@
 package com.springboot.blog.entity;
 
 import jakarta.persistence.*;
+import com.springboot.blog.utils.CommentPath;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "comments")
+@DynamicUpdate // UPDATEs only set the changed columns
+@Table(
+        name = "comments",
+        indexes = {
+                // a post's comments in id order, for keyset pages of /api/posts/{postId}/comments
+                @Index(name = "idx_comments_post_id_id", columnList = "post_id, id"),
+                // reply threads in display order and subtrees as one range, see CommentPath
+                @Index(name = "idx_comments_post_id_path", columnList = "post_id, path")
+        }
+)
 public class Comment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,4 +36,47 @@ public class Comment {
     @ManyToOne(fetch = FetchType.LAZY) // LAZY tells hibernate to only fetch the related entities from the database when you use the relationship
     @JoinColumn(name="post_id", nullable = false)
     private Post post;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    // set by the caller when the post's lastCommentAt has to match it, see PostRepository.commentAdded
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
+    // the comment this one replies to, null for a top-level comment
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    // materialized path, CommentPath. Only null between the INSERT and assignPath's UPDATE, which needs the generated id
+    @Column(name = "path", length = CommentPath.MAX_LENGTH)
+    private String path;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    // set to the parent's path before saving a reply
+    @Transient
+    private String parentPath;
+
+    @PrePersist
+    void setCreatedAtIfMissing(){
+        if(createdAt == null){
+            createdAt = Instant.now();
+        }
+    }
+
+    // the id is known right after the IDENTITY insert, the path change is flushed as an UPDATE in the same transaction
+    @PostPersist
+    void assignPath(){
+        if(path == null){
+            path = CommentPath.child(parentPath, id);
+            depth = CommentPath.depth(path);
+        }
+    }
 }
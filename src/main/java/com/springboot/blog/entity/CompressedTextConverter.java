@@ -0,0 +1,20 @@
+package com.springboot.blog.entity;
+
+import com.springboot.blog.utils.ContentCodec;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// String attribute stored as ContentCodec bytes
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        return text == null ? null : ContentCodec.compress(text);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        return stored == null ? null : ContentCodec.decompress(stored);
+    }
+}
@@ -2,7 +2,10 @@ package com.springboot.blog.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -12,8 +15,16 @@ import java.util.Set;
 @NoArgsConstructor
 
 @Entity
+@DynamicUpdate // UPDATEs only set the changed columns
 @Table(
-        name = "posts", uniqueConstraints = {@UniqueConstraint(columnNames = {"title"})}
+        name = "posts", uniqueConstraints = {@UniqueConstraint(columnNames = {"title"})},
+        // posts of a category in id order, for keyset pages of /api/posts/category/{id}
+        indexes = {
+                @Index(name = "idx_posts_category_id_id", columnList = "category_id, id"),
+                // keysets for "most commented" and "recently active" listings
+                @Index(name = "idx_posts_comment_count_id", columnList = "comment_count, id"),
+                @Index(name = "idx_posts_last_comment_at_id", columnList = "last_comment_at, id")
+        }
 )
 public class Post {
     @Id
@@ -26,8 +37,7 @@ public class Post {
     private String title;
     @Column(name = "description", nullable = false)
     private String description;
-    @Column(name = "content", nullable = false)
-    private String content;
+    // the content lives in post_contents (PostContent), so lists and joins never read it
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Comment> comments = new HashSet<>();
@@ -35,6 +45,27 @@ public class Post {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
+
+    // kept up to date by the comment writes with atomic UPDATEs (PostRepository.commentAdded / commentsRemoved),
+    // CommentCountRepairJob recomputes them from the comments
+    @Column(name = "comment_count", nullable = false)
+    private long commentCount;
+
+    @Column(name = "last_comment_at")
+    private Instant lastCommentAt;
+
+    // only ever incremented in bulk by PostViewCounter, @DynamicUpdate keeps entity updates from writing it back
+    @Column(name = "view_count", nullable = false)
+    private long viewCount;
+
+    // incremented on every update of the post and on every change to one of its comments, used as the ETag
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
 }
 
 /*
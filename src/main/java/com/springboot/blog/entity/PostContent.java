@@ -0,0 +1,38 @@
+package com.springboot.blog.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/*
+The body of a post, kept out of the posts table so that loading a Post never reads it.
+Only the detail view, updates and the export read it, through PostContentRepository.
+Stored compressed, see ContentCodec.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "post_contents")
+public class PostContent {
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id")
+    private Post post;
+
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "content", nullable = false, length = 16_777_215)
+    private String content;
+
+    public PostContent(Post post, String content) {
+        this.post = post;
+        this.content = content;
+    }
+}
@@ -0,0 +1,173 @@
+package com.springboot.blog.job;
+
+import com.springboot.blog.cache.PostCountCache;
+import com.springboot.blog.cache.PostDtoCache;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.payload.CategoryDeletionStatus;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.PostBulkDeleter;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.search.PostSearchIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Deletes categories in the background. A job takes the category's posts chunk by chunk in id order, deletes
+their comments and then the posts with PostBulkDeleter (short transactions, nothing is loaded as entities),
+and deletes the category row once no post is left.
+Jobs run one at a time on their own thread. Finished jobs are kept for an hour so their status can be read.
+ */
+@Component
+public class CategoryDeletionJobs {
+    private static final Duration KEEP_FINISHED = Duration.ofHours(1);
+    // posts created in the category while it is being deleted make the final delete fail, then it goes again
+    private static final int MAX_ATTEMPTS = 3;
+
+    private CategoryRepository categoryRepository;
+    private PostRepository postRepository;
+    private PostBulkDeleter postBulkDeleter;
+    private PostCountCache postCountCache;
+    private PostDtoCache postDtoCache;
+    private PostSearchIndex postSearchIndex;
+    private TransactionTemplate transactionTemplate;
+    private int chunkSize;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CategoryDeletionJobs(CategoryRepository categoryRepository, PostRepository postRepository,
+                                PostBulkDeleter postBulkDeleter, PostCountCache postCountCache,
+                                PostDtoCache postDtoCache, PostSearchIndex postSearchIndex,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.delete.category-chunk-size:500}") int chunkSize) {
+        this.categoryRepository = categoryRepository;
+        this.postRepository = postRepository;
+        this.postBulkDeleter = postBulkDeleter;
+        this.postCountCache = postCountCache;
+        this.postDtoCache = postDtoCache;
+        this.postSearchIndex = postSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    // queues the deletion, or returns the job that is already deleting this category
+    public CategoryDeletionStatus submit(long categoryId){
+        if(!categoryRepository.existsById(categoryId)){
+            throw new ResourceNotFoundException("Category", "id", categoryId);
+        }
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(now.minus(KEEP_FINISHED)));
+        synchronized (jobs) {
+            for (Job job : jobs.values()) {
+                if(job.categoryId == categoryId && job.finishedAt == null){
+                    return job.status();
+                }
+            }
+            Job job = new Job(UUID.randomUUID().toString(), categoryId);
+            jobs.put(job.id, job);
+            executor.execute(() -> run(job));
+            return job.status();
+        }
+    }
+
+    public CategoryDeletionStatus status(String jobId){
+        Job job = jobs.get(jobId);
+        if(job == null){
+            throw new BlogAPIException(HttpStatus.NOT_FOUND, "Category deletion job not found with id: '" + jobId + "'");
+        }
+        return job.status();
+    }
+
+    private void run(Job job){
+        try {
+            for (int attempt = 1; ; attempt++) {
+                deletePosts(job);
+                try {
+                    transactionTemplate.execute(status -> categoryRepository.bulkDeleteById(job.categoryId));
+                    break;
+                } catch (DataIntegrityViolationException ex){
+                    if(attempt == MAX_ATTEMPTS){
+                        throw ex;
+                    }
+                }
+            }
+            job.finish(null);
+        } catch (RuntimeException ex){
+            job.finish(ex.getMessage());
+        } finally {
+            postCountCache.invalidateAll();
+        }
+    }
+
+    private void deletePosts(Job job){
+        while (true) {
+            // always the first chunk, the previous one is gone
+            List<Long> postIds = postRepository.findIdsByCategoryId(job.categoryId, PageRequest.of(0, chunkSize));
+            if(postIds.isEmpty()){
+                return;
+            }
+            job.commentsDeleted.addAndGet(postBulkDeleter.deleteComments(postIds));
+            job.postsDeleted.addAndGet(postBulkDeleter.deletePosts(postIds));
+            for (Long postId : postIds) {
+                postDtoCache.invalidate(postId);
+                postSearchIndex.remove(postId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+
+    private static class Job {
+        private final String id;
+        private final long categoryId;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong postsDeleted = new AtomicLong();
+        private final AtomicLong commentsDeleted = new AtomicLong();
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        Job(String id, long categoryId) {
+            this.id = id;
+            this.categoryId = categoryId;
+        }
+
+        void finish(String error){
+            this.error = error;
+            this.finishedAt = Instant.now();
+        }
+
+        CategoryDeletionStatus status(){
+            Instant finished = finishedAt;
+            String state = finished == null ? "RUNNING" : error == null ? "COMPLETED" : "FAILED";
+            long posts = postsDeleted.get();
+            long comments = commentsDeleted.get();
+            double seconds = Duration.between(startedAt, finished == null ? Instant.now() : finished).toMillis() / 1000.0;
+            double rowsPerSecond = seconds == 0 ? 0 : (posts + comments) / seconds;
+            return new CategoryDeletionStatus(id, categoryId, state, posts, comments, startedAt, finished, rowsPerSecond, error);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.springboot.blog.job;
+
+import com.springboot.blog.cache.PostDtoCache;
+import com.springboot.blog.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/*
+Recomputes Post.commentCount and lastCommentAt from the comments table, for drift from writes that went around
+CommentServiceImpl (manual SQL, a failed transaction half way) and to fill them in for posts from before they
+existed. Walks all posts in id order, chunk by chunk, with one UPDATE and one short transaction per chunk.
+Runs every night and on demand through POST /api/posts/comment-counts/repair.
+ */
+@Component
+public class CommentCountRepairJob {
+    private PostRepository postRepository;
+    private PostDtoCache postDtoCache;
+    private TransactionTemplate transactionTemplate;
+    private int chunkSize;
+
+    public CommentCountRepairJob(PostRepository postRepository, PostDtoCache postDtoCache,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.comment-count-repair.chunk-size:1000}") int chunkSize) {
+        this.postRepository = postRepository;
+        this.postDtoCache = postDtoCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${app.comment-count-repair.cron:0 30 3 * * *}")
+    public void scheduledRepair(){
+        repair();
+    }
+
+    // returns how many posts were recounted
+    public synchronized long repair(){
+        long posts = 0;
+        Long lastId = null;
+        while (true) {
+            List<Long> ids = postRepository.findIdsAfter("id", Sort.Direction.ASC, null, lastId, chunkSize);
+            if(ids.isEmpty()){
+                break;
+            }
+            transactionTemplate.execute(status -> postRepository.recountComments(ids));
+            posts += ids.size();
+            lastId = ids.get(ids.size() - 1);
+        }
+        postDtoCache.invalidateAll(); // cached posts may carry the old counts
+        return posts;
+    }
+}
@@ -0,0 +1,42 @@
+package com.springboot.blog.job;
+
+import com.springboot.blog.utils.CommentPath;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+Gives the comments from before reply threads their materialized path. They have no parent, so the path is just
+their own id segment. Runs at startup before the web server takes requests, chunk by chunk in id order, and
+finds nothing to do once every comment has a path.
+ */
+@Component
+public class CommentPathMigration {
+    private static final int CHUNK_SIZE = 1000;
+
+    private JdbcTemplate jdbcTemplate;
+
+    // the EntityManagerFactory is only there so Hibernate has added the path column before this runs
+    public CommentPathMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate(){
+        long lastId = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "select id from comments where path is null and id > ? order by id limit ?",
+                    (resultSet, rowNumber) -> new Object[]{CommentPath.segment(resultSet.getLong(1)), resultSet.getLong(1)},
+                    lastId, CHUNK_SIZE);
+            if(rows.isEmpty()){
+                return;
+            }
+            jdbcTemplate.batchUpdate("update comments set path = ?, depth = 0 where id = ?", rows);
+            lastId = (Long) rows.get(rows.size() - 1)[1];
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.springboot.blog.job;
+
+import com.springboot.blog.cache.PostDtoCache;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.payload.BatchCommentDTO;
+import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.CommentReceipt;
+import com.springboot.blog.repository.PostJdbcWriter;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.stream.CommentStreams;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/*
+Write-behind for new comments, on with app.comments.write-behind.enabled=true. A request only validates the comment
+and puts it in a bounded queue (202), so request threads don't wait for the INSERT and don't hold a connection
+for it. A few writer threads take up to app.comments.write-behind.batch-size comments at a time and write them
+with PostJdbcWriter, one batched INSERT and one batched comment count update per transaction.
+
+When the queue is full new comments are refused with 429 instead of piling up. On shutdown no more comments
+are accepted and the writers empty the queue before the application stops. If they haven't finished within
+app.comments.write-behind.drain-timeout-seconds, the writers stop after their current batch and the shutdown thread
+writes whatever is left itself, so comments already answered with 202 are not thrown away.
+A batch that fails to write is retried app.comments.write-behind.retries times, waiting
+app.comments.write-behind.retry-backoff-millis (doubling) in between, so a deadlock or a dropped connection loses
+nothing. If it still fails its comments are written one at a time, and only those that fail on their own are lost.
+A comment whose post was deleted while it was queued is dropped. Lost and dropped comments are counted. Published as comments.write-behind.depth, .latency (accepted to committed), .rejected, .dropped and .failed.
+ */
+@Component
+public class CommentWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(CommentWriteBehind.class);
+    private static final long POLL_MILLIS = 100;
+
+    private PostRepository postRepository;
+    private PostJdbcWriter postJdbcWriter;
+    private PostDtoCache postDtoCache;
+    private CommentStreams commentStreams;
+    private CommentMapper commentMapper;
+    private TransactionTemplate transactionTemplate;
+    private boolean enabled;
+    private int batchSize;
+    private long drainTimeoutSeconds;
+    private int retries;
+    private long retryBackoffMillis;
+
+    private BlockingQueue<Pending> queue;
+    private ExecutorService writers;
+    private volatile boolean accepting;
+    private volatile boolean stopping;
+    private volatile boolean handedOver;
+
+    private Timer latency;
+    private Counter rejected;
+    private Counter dropped;
+    private Counter failed;
+
+    public CommentWriteBehind(PostRepository postRepository, PostJdbcWriter postJdbcWriter, PostDtoCache postDtoCache,
+                              CommentStreams commentStreams, CommentMapper commentMapper,
+                              PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                              @Value("${app.comments.write-behind.enabled:false}") boolean enabled,
+                              @Value("${app.comments.write-behind.capacity:10000}") int capacity,
+                              @Value("${app.comments.write-behind.writers:2}") int writerCount,
+                              @Value("${app.comments.write-behind.batch-size:200}") int batchSize,
+                              @Value("${app.comments.write-behind.drain-timeout-seconds:30}") long drainTimeoutSeconds,
+                              @Value("${app.comments.write-behind.retries:3}") int retries,
+                              @Value("${app.comments.write-behind.retry-backoff-millis:50}") long retryBackoffMillis) {
+        this.postRepository = postRepository;
+        this.postJdbcWriter = postJdbcWriter;
+        this.postDtoCache = postDtoCache;
+        this.commentStreams = commentStreams;
+        this.commentMapper = commentMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+        this.retries = retries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        if(!enabled){
+            return;
+        }
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.latency = Timer.builder("comments.write-behind.latency")
+                .description("Time from accepting a comment to committing it").register(meterRegistry);
+        this.rejected = Counter.builder("comments.write-behind.rejected")
+                .description("Comments refused with 429 because the queue was full").register(meterRegistry);
+        this.dropped = Counter.builder("comments.write-behind.dropped")
+                .description("Queued comments whose post was deleted before they were written").register(meterRegistry);
+        this.failed = Counter.builder("comments.write-behind.failed")
+                .description("Queued comments lost because they failed to write, even on their own").register(meterRegistry);
+        Gauge.builder("comments.write-behind.depth", queue, BlockingQueue::size)
+                .description("Comments accepted but not written yet").register(meterRegistry);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerCount, runnable -> {
+            Thread thread = new Thread(runnable, "comment-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writerCount; i++) {
+            writers.execute(this::runWriter);
+        }
+        this.accepting = true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // the post is expected to exist already, the caller checks it
+    public CommentReceipt enqueue(long postId, CommentDTO commentDTO){
+        BatchCommentDTO comment = new BatchCommentDTO();
+        comment.setPostId(postId);
+        comment.setName(commentDTO.getName());
+        comment.setEmail(commentDTO.getEmail());
+        comment.setBody(commentDTO.getBody());
+        Pending pending = new Pending(UUID.randomUUID().toString(), comment, Instant.now(), System.nanoTime());
+
+        if(!accepting){
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down, comments are not accepted");
+        }
+        if(!queue.offer(pending)){
+            rejected.increment();
+            throw new BlogAPIException(HttpStatus.TOO_MANY_REQUESTS, "Too many comments waiting to be written, try again later");
+        }
+        return new CommentReceipt(pending.provisionalId, postId, pending.acceptedAt);
+    }
+
+    private void runWriter(){
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!handedOver) {
+            Pending first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex){
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if(first == null){
+                if(stopping){
+                    return; // queue is empty and nothing new is accepted
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch){
+        if(tryWrite(batch, retries)){
+            return;
+        }
+        if(batch.size() == 1){
+            failed.increment();
+            return;
+        }
+        // one bad row must not take the rest of the batch with it
+        logger.warn("Writing {} queued comments one at a time after their batch kept failing", batch.size());
+        for (Pending pending : batch) {
+            if(!tryWrite(List.of(pending), 0)){
+                failed.increment();
+            }
+        }
+    }
+
+    // true once the comments are committed, a failed attempt is tried again up to `retries` times
+    private boolean tryWrite(List<Pending> batch, int retries){
+        long backoff = retryBackoffMillis;
+        for (int attempt = 0; ; attempt++) {
+            Written written;
+            try {
+                written = insert(batch);
+            } catch (RuntimeException ex){
+                if(attempt >= retries || Thread.currentThread().isInterrupted()){
+                    logger.warn("Failed to write {} queued comments", batch.size(), ex);
+                    return false;
+                }
+                logger.info("Writing {} queued comments failed, retrying in {} ms", batch.size(), backoff, ex);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted){
+                    Thread.currentThread().interrupt(); // no more waiting, this is the last attempt
+                }
+                backoff *= 2;
+                continue;
+            }
+            afterCommit(batch, written);
+            return true;
+        }
+    }
+
+    // everything here is retried on failure, so nothing leaves the transaction
+    private Written insert(List<Pending> batch){
+        Set<Long> postIds = batch.stream().map(pending -> pending.comment.getPostId()).collect(Collectors.toSet());
+        Set<Long> existing = new HashSet<>(postRepository.findExistingIds(postIds));
+        List<Pending> writable = batch.stream()
+                .filter(pending -> existing.contains(pending.comment.getPostId()))
+                .collect(Collectors.toList());
+        if(writable.isEmpty()){
+            return new Written(writable, Map.of(), new long[0]);
+        }
+
+        Map<Long, Integer> commentsByPostId = new HashMap<>();
+        for (Pending pending : writable) {
+            commentsByPostId.merge(pending.comment.getPostId(), 1, Integer::sum);
+        }
+        List<BatchCommentDTO> comments = writable.stream().map(pending -> pending.comment).collect(Collectors.toList());
+        long[] ids = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            long[] generated = postJdbcWriter.insertComments(comments, now);
+            postJdbcWriter.addComments(commentsByPostId, now);
+            return generated;
+        });
+        return new Written(writable, commentsByPostId, ids);
+    }
+
+    // the comments are committed, a failure here must not make them be written again
+    private void afterCommit(List<Pending> batch, Written written){
+        dropped.increment(batch.size() - written.pendings.size());
+        try {
+            written.commentsByPostId.keySet().forEach(postDtoCache::invalidate);
+            for (int i = 0; i < written.ids.length; i++) {
+                BatchCommentDTO comment = written.pendings.get(i).comment;
+                commentStreams.publish(comment.getPostId(), CommentStreams.CREATED, written.ids[i],
+                        commentMapper.mapToDTO(written.ids[i], comment));
+            }
+        } catch (RuntimeException ex){
+            logger.warn("Wrote {} queued comments but failed to announce them", written.ids.length, ex);
+        }
+
+        long now = System.nanoTime();
+        for (Pending pending : written.pendings) {
+            latency.record(now - pending.acceptedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if(!enabled){
+            return;
+        }
+        accepting = false;
+        stopping = true;
+        writers.shutdown();
+        if(writers.awaitTermination(drainTimeoutSeconds, TimeUnit.SECONDS)){
+            // anything offered while the writers were already finishing
+            writeRest();
+            return;
+        }
+        // the writers are too slow: they stop after their current batch and this thread writes the rest
+        handedOver = true;
+        logger.warn("Comment writers did not empty the queue within {}s, writing the {} remaining comments on shutdown",
+                drainTimeoutSeconds, queue.size());
+        try {
+            writeRest();
+        } finally {
+            if(!queue.isEmpty()){
+                logger.error("Shutdown interrupted, {} accepted comments were not written", queue.size());
+            }
+        }
+        if(!writers.awaitTermination(drainTimeoutSeconds, TimeUnit.SECONDS)){
+            logger.warn("A comment batch was still being written when shutdown finished");
+        }
+    }
+
+    private void writeRest() throws InterruptedException {
+        List<Pending> rest = new ArrayList<>(batchSize);
+        while (queue.drainTo(rest, batchSize) > 0) {
+            write(rest);
+            rest.clear();
+            if(Thread.interrupted()){
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private static class Pending {
+        private final String provisionalId;
+        private final BatchCommentDTO comment;
+        private final Instant acceptedAt;
+        private final long acceptedNanos;
+
+        Pending(String provisionalId, BatchCommentDTO comment, Instant acceptedAt, long acceptedNanos) {
+            this.provisionalId = provisionalId;
+            this.comment = comment;
+            this.acceptedAt = acceptedAt;
+            this.acceptedNanos = acceptedNanos;
+        }
+    }
+
+    private static class Written {
+        private final List<Pending> pendings;
+        private final Map<Long, Integer> commentsByPostId;
+        private final long[] ids;
+
+        Written(List<Pending> pendings, Map<Long, Integer> commentsByPostId, long[] ids) {
+            this.pendings = pendings;
+            this.commentsByPostId = commentsByPostId;
+            this.ids = ids;
+        }
+    }
+}
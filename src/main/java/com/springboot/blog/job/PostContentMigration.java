@@ -0,0 +1,113 @@
+package com.springboot.blog.job;
+
+import com.springboot.blog.utils.ContentCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/*
+One-off move of posts.content (from before PostContent existed) into post_contents, compressed.
+Runs at startup before the web server takes requests, and only while the old column is still there.
+The copy is idempotent (it only picks posts without a post_contents row) and leaves posts.content untouched,
+so until the column is dropped an older build can still be rolled back to.
+Dropping the column is opt-in (app.migrations.post-content.drop-old-column) and only happens once every post
+has its post_contents row; otherwise the column stays and the reason is logged.
+ */
+@Component
+public class PostContentMigration {
+    private static final Logger logger = LoggerFactory.getLogger(PostContentMigration.class);
+    private static final int CHUNK_SIZE = 500;
+
+    private JdbcTemplate jdbcTemplate;
+    private boolean dropOldColumn;
+
+    // the EntityManagerFactory is only there so Hibernate has created post_contents before this runs
+    public PostContentMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                                @Value("${app.migrations.post-content.drop-old-column:false}") boolean dropOldColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dropOldColumn = dropOldColumn;
+    }
+
+    @PostConstruct
+    public void migrate(){
+        if(!hasContentColumn()){
+            return;
+        }
+        // new posts no longer fill posts.content, the old NOT NULL would reject them while the column is kept
+        if(!isContentNullable()){
+            jdbcTemplate.execute("alter table posts modify content longtext null");
+        }
+        long copied = copyMissingContents();
+        long missing = countPostsWithoutContent();
+        logger.info("Copied {} posts.content rows into post_contents, {} posts still without one", copied, missing);
+        if(!dropOldColumn){
+            return;
+        }
+        if(missing > 0){
+            logger.warn("Keeping posts.content: {} posts have no post_contents row", missing);
+            return;
+        }
+        jdbcTemplate.execute("alter table posts drop column content");
+        logger.info("Dropped posts.content");
+    }
+
+    private long copyMissingContents(){
+        long copied = 0;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "select p.id, p.content from posts p left join post_contents pc on pc.post_id = p.id " +
+                            "where pc.post_id is null and p.id > ? order by p.id limit ?",
+                    (resultSet, rowNumber) -> new Object[]{resultSet.getLong(1),
+                            ContentCodec.compress(resultSet.getString(2) == null ? "" : resultSet.getString(2))},
+                    lastId, CHUNK_SIZE);
+            if(rows.isEmpty()){
+                return copied;
+            }
+            jdbcTemplate.batchUpdate("insert into post_contents (post_id, content) values (?, ?)", rows);
+            copied += rows.size();
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    private long countPostsWithoutContent(){
+        Long missing = jdbcTemplate.queryForObject(
+                "select count(*) from posts p left join post_contents pc on pc.post_id = p.id where pc.post_id is null",
+                Long.class);
+        return missing == null ? 0 : missing;
+    }
+
+    private boolean hasContentColumn(){
+        return contentColumn(columns -> columns.next());
+    }
+
+    private boolean isContentNullable(){
+        return contentColumn(columns -> columns.next() && columns.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+    }
+
+    private boolean contentColumn(ColumnCheck check){
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // MySQL keeps the names as written, H2 (tests) folds unquoted names to upper case
+            boolean upperCase = metaData.storesUpperCaseIdentifiers();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null,
+                    upperCase ? "POSTS" : "posts", upperCase ? "CONTENT" : "content")) {
+                return check.test(columns);
+            }
+        });
+    }
+
+    private interface ColumnCheck {
+        boolean test(ResultSet columns) throws SQLException;
+    }
+}
@@ -0,0 +1,22 @@
+package com.springboot.blog.mapper;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.payload.CategoryDTO;
+import org.springframework.stereotype.Component;
+
+// plain field copies instead of ModelMapper's reflection, never touches category.getPosts()
+@Component
+public class CategoryMapper {
+
+    public CategoryDTO mapToDTO(Category category){
+        return new CategoryDTO(category.getId(), category.getName(), category.getDescription());
+    }
+
+    // the id is generated by the database, so it is not copied from the request
+    public Category mapToEntity(CategoryDTO categoryDTO){
+        Category category = new Category();
+        category.setName(categoryDTO.getName());
+        category.setDescription(categoryDTO.getDescription());
+        return category;
+    }
+}
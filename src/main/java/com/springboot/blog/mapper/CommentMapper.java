@@ -0,0 +1,43 @@
+package com.springboot.blog.mapper;
+
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.payload.BatchCommentDTO;
+import com.springboot.blog.payload.CommentDTO;
+import org.springframework.stereotype.Component;
+
+// plain field copies instead of ModelMapper's reflection, never touches comment.getPost()
+@Component
+public class CommentMapper {
+
+    public CommentDTO mapToDTO(Comment comment){
+        CommentDTO commentDTO = new CommentDTO();
+        commentDTO.setId(comment.getId());
+        commentDTO.setName(comment.getName());
+        commentDTO.setEmail(comment.getEmail());
+        commentDTO.setBody(comment.getBody());
+        commentDTO.setParentId(comment.getParentId());
+        commentDTO.setDepth(comment.getDepth());
+        return commentDTO;
+    }
+
+    // a top-level comment written by PostJdbcWriter, under the id it was given
+    public CommentDTO mapToDTO(long id, BatchCommentDTO comment){
+        CommentDTO commentDTO = new CommentDTO();
+        commentDTO.setId(id);
+        commentDTO.setName(comment.getName());
+        commentDTO.setEmail(comment.getEmail());
+        commentDTO.setBody(comment.getBody());
+        commentDTO.setDepth(0);
+        return commentDTO;
+    }
+
+    // the id is generated by the database, so it is not copied from the request. Neither is the parent, the service
+    // checks it and sets parentId and parentPath
+    public Comment mapToEntity(CommentDTO commentDTO){
+        Comment comment = new Comment();
+        comment.setName(commentDTO.getName());
+        comment.setEmail(commentDTO.getEmail());
+        comment.setBody(commentDTO.getBody());
+        return comment;
+    }
+}
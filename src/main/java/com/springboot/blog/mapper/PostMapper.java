@@ -0,0 +1,57 @@
+package com.springboot.blog.mapper;
+
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.PostDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+Plain field copies instead of ModelMapper's reflection and deep traversal.
+The lazy comments collection is only read by mapToDTOWithComments, and categoryId is read from the
+category proxy's id, which does not initialize the proxy.
+The content is not part of Post (see PostContent), callers that need it set it on the DTO.
+ */
+@Component
+public class PostMapper {
+    private CommentMapper commentMapper;
+
+    public PostMapper(CommentMapper commentMapper) {
+        this.commentMapper = commentMapper;
+    }
+
+    public PostDTO mapToDTO(Post post){
+        PostDTO postDTO = new PostDTO();
+        postDTO.setId(post.getId());
+        postDTO.setTitle(post.getTitle());
+        postDTO.setDescription(post.getDescription());
+        postDTO.setCategoryId(post.getCategory() == null ? null : post.getCategory().getId());
+        postDTO.setViewCount(post.getViewCount());
+        postDTO.setVersion(post.getVersion());
+        postDTO.setUpdatedAt(post.getUpdatedAt());
+        return postDTO;
+    }
+
+    public PostDTO mapToDTOWithComments(Post post){
+        PostDTO postDTO = mapToDTO(post);
+        Set<Comment> comments = post.getComments();
+        Set<CommentDTO> commentDTOS = new HashSet<>(Math.max(16, (int) (comments.size() / .75f) + 1));
+        for (Comment comment : comments) {
+            commentDTOS.add(commentMapper.mapToDTO(comment));
+        }
+        postDTO.setComments(commentDTOS);
+        return postDTO;
+    }
+
+    // id and category are set by the caller, the id is generated by the database.
+    // The content is stored separately as a PostContent
+    public Post mapToEntity(PostDTO postDTO){
+        Post post = new Post();
+        post.setTitle(postDTO.getTitle());
+        post.setDescription(postDTO.getDescription());
+        return post;
+    }
+}
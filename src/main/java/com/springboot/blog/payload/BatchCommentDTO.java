@@ -0,0 +1,22 @@
+package com.springboot.blog.payload;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+// one comment of POST /api/comments/batch, a CommentDTO that names its post
+@Data
+public class BatchCommentDTO {
+    @NotNull(message = "Post id should not be null")
+    private Long postId;
+    @NotEmpty(message = "Name should not be null or empty")
+    private String name;
+    @NotEmpty(message = "Email should not be null or empty")
+    @Email
+    private String email;
+    @NotEmpty
+    @Size(min = 10, message = "Comment body must be minimum 10 characters")
+    private String body;
+}
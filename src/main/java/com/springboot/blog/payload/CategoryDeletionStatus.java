@@ -0,0 +1,23 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// progress of a background category deletion, see GET /api/categories/deletions/{jobId}
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryDeletionStatus {
+    private String jobId;
+    private long categoryId;
+    private String state; // RUNNING, COMPLETED or FAILED
+    private long postsDeleted;
+    private long commentsDeleted;
+    private Instant startedAt;
+    private Instant finishedAt; // null while running
+    private double rowsPerSecond; // posts and comments together
+    private String error;
+}
@@ -0,0 +1,14 @@
+package com.springboot.blog.payload;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CommentBatchRequest {
+    @NotEmpty(message = "Comments should not be empty")
+    @Valid
+    private List<BatchCommentDTO> comments;
+}
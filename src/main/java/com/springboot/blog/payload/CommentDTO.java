@@ -1,5 +1,6 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
@@ -16,4 +17,10 @@ public class CommentDTO {
     @NotEmpty
     @Size(min = 10, message = "Comment body must be minimum 10 characters")
     private String body;
+    // the comment this one replies to, left out for a top-level comment. Moving a reply is PUT .../{commentId}/parent
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long parentId;
+    // read only, 0 for a top-level comment. Both are left out of PUT responses, which don't read the comment back
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer depth;
 }
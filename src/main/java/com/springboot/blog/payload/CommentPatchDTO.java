@@ -0,0 +1,17 @@
+package com.springboot.blog.payload;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+// body of PATCH /api/posts/{postId}/comments/{commentId}: only the fields that are set (not null) are changed
+@Data
+public class CommentPatchDTO {
+    @Size(min = 1, message = "Name should not be empty")
+    private String name;
+    @Size(min = 1, message = "Email should not be empty")
+    @Email
+    private String email;
+    @Size(min = 10, message = "Comment body must be minimum 10 characters")
+    private String body;
+}
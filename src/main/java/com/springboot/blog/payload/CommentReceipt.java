@@ -0,0 +1,21 @@
+package com.springboot.blog.payload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// answer to a comment that was queued instead of written, see CommentWriteBehind
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(
+        description = "CommentReceipt Model Information"
+)
+public class CommentReceipt {
+    private String provisionalId; // only identifies the request, the comment gets its real id when it is written
+    private long postId;
+    private Instant acceptedAt;
+}
@@ -0,0 +1,12 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// where a comment sits in its thread, the CommentDTO fields an update doesn't write
+@Getter
+@AllArgsConstructor
+public class CommentThreadPosition {
+    private Long parentId; // null for a top-level comment
+    private int depth;
+}
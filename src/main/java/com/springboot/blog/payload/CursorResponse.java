@@ -0,0 +1,25 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// one page of a keyset (cursor) listing: no page number and by default no total, just where to continue from
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorResponse<T> {
+    private List<T> content;
+    private int pageSize;
+    private String nextCursor; // pass back as "after" to get the next page, null on the last page
+    private boolean last;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElement; // null unless a total was requested (count=cached or exact)
+
+    public CursorResponse(List<T> content, int pageSize, String nextCursor, boolean last) {
+        this(content, pageSize, nextCursor, last, null);
+    }
+}
@@ -1,10 +1,13 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 
+import java.time.Instant;
 import java.util.Set;
 
 @Data // create getters and setters
@@ -34,6 +37,7 @@ public class PostDTO { //DTO: data transfer object,
             description = "Blog Post content"
     )
     @NotEmpty
+    @JsonInclude(JsonInclude.Include.NON_NULL) // only the detail view loads it, lists leave it out
     private String content;
 
 
@@ -44,6 +48,17 @@ public class PostDTO { //DTO: data transfer object,
             description = "Blog Post category"
     )
     private Long categoryId;
+
+    @Schema(
+            description = "How often the post was read, updated every few seconds"
+    )
+    private long viewCount;
+
+    // sent as ETag / Last-Modified headers instead of in the body
+    @JsonIgnore
+    private long version;
+    @JsonIgnore
+    private Instant updatedAt;
 }
 
 /*
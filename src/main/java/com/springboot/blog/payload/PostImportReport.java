@@ -0,0 +1,29 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// outcome of a bulk import, errors lists at most the first AppConstants.MAX_IMPORT_ERRORS failed lines
+@Data
+@NoArgsConstructor
+public class PostImportReport {
+    private long linesRead;
+    private long postsImported;
+    private long commentsImported;
+    private long linesFailed;
+    private List<LineError> errors = new ArrayList<>();
+    private long elapsedMillis;
+    private double postsPerSecond;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class LineError {
+        private long line;
+        private String message;
+    }
+}
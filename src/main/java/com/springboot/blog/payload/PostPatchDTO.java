@@ -0,0 +1,23 @@
+package com.springboot.blog.payload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+// body of PATCH /api/posts/{id}: only the fields that are set (not null) are changed
+@Data
+@Schema(
+        description = "PostPatchDTO Model Information"
+)
+public class PostPatchDTO {
+    @Size(min = 2, message = "Post title should have at least 2 characters")
+    private String title;
+
+    @Size(min = 10, message = "Post description should have at least 10 characters")
+    private String description;
+
+    @Size(min = 1, message = "Post content should not be empty")
+    private String content;
+
+    private Long categoryId;
+}
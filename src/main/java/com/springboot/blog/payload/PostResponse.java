@@ -1,5 +1,6 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,11 +9,12 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PostResponse {
     private List<PostDTO> content;
     private int pageNo;
     private int pageSize;
-    private long totalElement;
-    private int totalPages;
+    private Long totalElement; // null when the totals were not requested
+    private Integer totalPages;
     private boolean last;
 }
@@ -0,0 +1,20 @@
+package com.springboot.blog.payload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(
+        description = "PostSearchHit Model Information"
+)
+public class PostSearchHit {
+    private long id;
+    private String title;
+    private String description;
+    private Long categoryId;
+    private float score; // BM25, only comparable between hits of the same query
+}
@@ -0,0 +1,30 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+// what a post list renders: no content and no comments, only how many comments there are
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL) // fields that were not selected with fields= stay null and are left out
+@Schema(
+        description = "PostSummaryDTO Model Information"
+)
+public class PostSummaryDTO {
+    public static final List<String> FIELDS = List.of("id", "title", "description", "categoryId", "commentCount",
+            "lastCommentAt");
+
+    private Long id;
+    private String title;
+    private String description;
+    private Long categoryId;
+    private Long commentCount;
+    private Instant lastCommentAt;
+}
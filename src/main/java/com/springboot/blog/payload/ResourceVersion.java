@@ -0,0 +1,24 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+// version column and last update time of an entity, enough to answer a conditional GET without loading it
+@Getter
+@AllArgsConstructor
+public class ResourceVersion {
+    private long version;
+    private Instant updatedAt;
+
+    // representation tells apart different views of the same entity, e.g. a post and its comment list
+    public String eTag(String representation){
+        return "\"" + representation + "-" + version + "\"";
+    }
+
+    // epoch millis for Last-Modified, -1 (no Last-Modified check) for rows written before the column existed
+    public long lastModified(){
+        return updatedAt == null ? -1 : updatedAt.toEpochMilli();
+    }
+}
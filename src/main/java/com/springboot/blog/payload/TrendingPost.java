@@ -0,0 +1,22 @@
+package com.springboot.blog.payload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(
+        description = "TrendingPost Model Information"
+)
+public class TrendingPost {
+    private long id;
+    private String title;
+    private String description;
+    private Long categoryId;
+    private Long commentCount;
+    private double score; // decayed reads plus weighted comments, only comparable within one window
+    private double maxError; // score may be overestimated by up to this much
+}
@@ -1,8 +1,25 @@
 package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Category;
+import com.springboot.blog.payload.ResourceVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
+    @Query("select new com.springboot.blog.payload.ResourceVersion(c.version, c.updatedAt) from Category c where c.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    @Query("select c.id from Category c")
+    List<Long> findAllIds();
+
+    // the row only, its posts have to be deleted first (CategoryDeletionJobs)
+    @Modifying
+    @Query("delete from Category c where c.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
 }
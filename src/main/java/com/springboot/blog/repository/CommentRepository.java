@@ -1,12 +1,88 @@
 package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Comment;
+import com.springboot.blog.payload.CommentThreadPosition;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 //@Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findCommentByPostId(long postId);
+    // a comment only if it belongs to the post, one query on the primary key
+    @Query("select c from Comment c where c.id = :id and c.post.id = :postId")
+    Optional<Comment> findByIdAndPostId(@Param("id") long id, @Param("postId") long postId);
+
+    // parent and depth only, one query on the primary key
+    @Query("select new com.springboot.blog.payload.CommentThreadPosition(c.parentId, c.depth) from Comment c where c.id = :id")
+    Optional<CommentThreadPosition> findThreadPositionById(@Param("id") long id);
+
+    // 0 rows when the comment doesn't exist or belongs to another post, bumps the version like a managed update would
+    @Modifying
+    @Query("update Comment c set c.name = :name, c.email = :email, c.body = :body, c.version = c.version + 1, " +
+            "c.updatedAt = :now where c.id = :id and c.post.id = :postId")
+    int updateByIdAndPostId(@Param("id") long id, @Param("postId") long postId, @Param("name") String name,
+                            @Param("email") String email, @Param("body") String body, @Param("now") Instant now);
+
+    // reply threads, see CommentPath. The pattern of a whole post is "%", of a subtree CommentPath.subtreePattern
+    @Query("select c.path from Comment c where c.id = :id and c.post.id = :postId")
+    Optional<String> findPathByIdAndPostId(@Param("id") long id, @Param("postId") long postId);
+
+    // one keyset page of a thread in display order, afterPath "" for the first page
+    @Query("select c from Comment c where c.post.id = :postId and c.path like :pattern and c.path > :afterPath " +
+            "order by c.path")
+    List<Comment> findThreadPage(@Param("postId") long postId, @Param("pattern") String pattern,
+                                 @Param("afterPath") String afterPath, Pageable pageable);
+
+    // the longest path in a subtree, for the depth limit when it is moved
+    @Query("select max(length(c.path)) from Comment c where c.post.id = :postId and c.path like :pattern")
+    Integer findMaxPathLength(@Param("postId") long postId, @Param("pattern") String pattern);
+
+    // moves a whole subtree by swapping the path prefix of every comment in it, one range UPDATE
+    @Modifying
+    @Query("update Comment c set c.path = concat(:newPath, substring(c.path, :oldPathLength + 1)), " +
+            "c.depth = c.depth + :depthChange where c.post.id = :postId and c.path like :pattern")
+    int moveSubtree(@Param("postId") long postId, @Param("pattern") String pattern, @Param("newPath") String newPath,
+                    @Param("oldPathLength") int oldPathLength, @Param("depthChange") int depthChange);
+
+    @Modifying
+    @Query("update Comment c set c.parentId = :parentId, c.version = c.version + 1, c.updatedAt = :now where c.id = :id")
+    int updateParentId(@Param("id") long id, @Param("parentId") Long parentId, @Param("now") Instant now);
+
+    // a comment with all its replies, one range DELETE
+    @Modifying
+    @Query("delete from Comment c where c.post.id = :postId and c.path like :pattern")
+    int deleteSubtree(@Param("postId") long postId, @Param("pattern") String pattern);
+    // keyset pages of a post's comments, both walk idx_comments_post_id_id, pageable only sets the limit
+    @Query("select c from Comment c where c.post.id = :postId and c.id > :lastId order by c.id asc")
+    List<Comment> findPageAfter(@Param("postId") long postId, @Param("lastId") long lastId, Pageable pageable);
+
+    @Query("select c from Comment c where c.post.id = :postId and c.id < :lastId order by c.id desc")
+    List<Comment> findPageBefore(@Param("postId") long postId, @Param("lastId") long lastId, Pageable pageable);
+
+    // the comments of several posts in one query, callers group them by comment.getPost().getId()
+    @Query("select c from Comment c where c.post.id in :postIds order by c.id")
+    List<Comment> findByPostIdIn(@Param("postIds") Collection<Long> postIds);
+
+    // bulk statements for deleting a post's comments without loading them, see PostBulkDeleter
+    @Query("select c.id from Comment c where c.post.id = :postId order by c.id")
+    List<Long> findIdsByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    @Query("select c.id from Comment c where c.post.id in :postIds order by c.id")
+    List<Long> findIdsByPostIdIn(@Param("postIds") Collection<Long> postIds, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Comment c where c.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from Comment c where c.post.id = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
 }
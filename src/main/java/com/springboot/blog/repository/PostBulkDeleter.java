@@ -0,0 +1,76 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+/*
+Deletes a post and its comments with bulk DELETE statements instead of the entity cascade, which loads every
+comment and removes them one by one. A post with more than chunkSize comments loses them in chunks, each in
+its own short transaction, so no transaction holds locks on all of them at once. The last transaction removes
+the remaining comments, the post's content and the post itself.
+A small post takes four statements: one select of comment ids and one delete each of the comments, the
+content and the post.
+ */
+@Repository
+public class PostBulkDeleter {
+    private PostRepository postRepository;
+    private CommentRepository commentRepository;
+    private PostContentRepository postContentRepository;
+    private TransactionTemplate transactionTemplate;
+    private int chunkSize;
+
+    public PostBulkDeleter(PostRepository postRepository, CommentRepository commentRepository,
+                           PostContentRepository postContentRepository, PlatformTransactionManager transactionManager,
+                           @Value("${app.delete.chunk-size:1000}") int chunkSize) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.postContentRepository = postContentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    // throws ResourceNotFoundException if there is no such post
+    public void delete(long postId){
+        while (true) {
+            List<Long> commentIds = commentRepository.findIdsByPostId(postId, PageRequest.of(0, chunkSize));
+            if(commentIds.size() < chunkSize){
+                break; // few enough to go with the post
+            }
+            transactionTemplate.executeWithoutResult(status -> commentRepository.deleteByIdIn(commentIds));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            commentRepository.deleteByPostId(postId);
+            postContentRepository.deleteByPostIdIn(List.of(postId));
+            if(postRepository.bulkDeleteById(postId) == 0){
+                throw new ResourceNotFoundException("Post", "id", postId); // rolls back this transaction
+            }
+        });
+    }
+
+    // the comments of all the given posts, chunk by chunk, returns how many were deleted
+    public long deleteComments(Collection<Long> postIds){
+        long deleted = 0;
+        while (true) {
+            List<Long> commentIds = commentRepository.findIdsByPostIdIn(postIds, PageRequest.of(0, chunkSize));
+            if(commentIds.isEmpty()){
+                return deleted;
+            }
+            deleted += transactionTemplate.execute(status -> commentRepository.deleteByIdIn(commentIds));
+        }
+    }
+
+    // posts whose comments were already deleted with deleteComments, with their content, in one transaction
+    public int deletePosts(Collection<Long> postIds){
+        return transactionTemplate.execute(status -> {
+            postContentRepository.deleteByPostIdIn(postIds);
+            return postRepository.bulkDeleteByIdIn(postIds);
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.PostContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+
+// keyed by post id, findById / findAllById load the content of one or several posts
+public interface PostContentRepository extends JpaRepository<PostContent, Long> {
+
+    // replaces the content without reading the old one, 0 if the post has no content row yet
+    @Modifying
+    @Query("update PostContent pc set pc.content = :content where pc.postId = :postId")
+    int updateContent(@Param("postId") Long postId, @Param("content") String content);
+
+    @Modifying
+    @Query("delete from PostContent pc where pc.postId in :postIds")
+    int deleteByPostIdIn(@Param("postIds") Collection<Long> postIds);
+}
@@ -0,0 +1,148 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.payload.BatchCommentDTO;
+import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.PostDTO;
+import com.springboot.blog.utils.CommentPath;
+import com.springboot.blog.utils.ContentCodec;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+Plain JDBC batch inserts for bulk imports and batch comment creation. Post and Comment ids are IDENTITY columns,
+which keeps Hibernate from batching their inserts, so these go around it: one batched INSERT per table and chunk,
+with the generated ids read back from the same statement.
+On MySQL the batches only become multi-row inserts with rewriteBatchedStatements=true on the JDBC url.
+Nothing here touches the persistence context or the caches, the caller takes care of those.
+ */
+@Repository
+public class PostJdbcWriter {
+    private static final String INSERT_POST = "insert into posts (title, description, category_id, comment_count, " +
+            "last_comment_at, view_count, version, updated_at) values (?, ?, ?, ?, ?, 0, 0, ?)";
+    private static final String INSERT_CONTENT = "insert into post_contents (post_id, content) values (?, ?)";
+    // only top-level comments are written here, so depth is always 0. The path needs the generated id, SET_COMMENT_PATH
+    private static final String INSERT_COMMENT = "insert into comments (name, email, body, post_id, depth, version, " +
+            "updated_at, created_at) values (?, ?, ?, ?, 0, 0, ?, ?)";
+    private static final String SET_COMMENT_PATH = "update comments set path = ? where id = ?";
+    // last_comment_at as in PostRepository.commentAdded: the newest created_at, never moved back
+    private static final String ADD_COMMENTS = "update posts set comment_count = comment_count + ?, " +
+            "last_comment_at = case when last_comment_at is null or last_comment_at < ? then ? else last_comment_at end, " +
+            "version = version + 1, updated_at = ? where id = ?";
+
+    private JdbcTemplate jdbcTemplate;
+
+    public PostJdbcWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // inserts the posts in one batch and returns their generated ids, in the order of posts.
+    // Pass insertComments the same `now`, it becomes the posts' lastCommentAt
+    public long[] insertPosts(List<PostDTO> posts, Instant createdAt){
+        Timestamp now = Timestamp.from(createdAt);
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_POST, Statement.RETURN_GENERATED_KEYS)) {
+                for (PostDTO post : posts) {
+                    statement.setString(1, post.getTitle());
+                    statement.setString(2, post.getDescription());
+                    int commentCount = post.getComments() == null ? 0 : post.getComments().size();
+                    statement.setLong(3, post.getCategoryId());
+                    statement.setLong(4, commentCount);
+                    statement.setTimestamp(5, commentCount == 0 ? null : now);
+                    statement.setTimestamp(6, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                long[] ids = new long[posts.size()];
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < ids.length && keys.next(); i++) {
+                        ids[i] = keys.getLong(1);
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    // the content of posts.get(i) for postIds[i], compressed like CompressedTextConverter does
+    public void insertContents(List<PostDTO> posts, long[] postIds){
+        List<Object[]> rows = new ArrayList<>(posts.size());
+        for (int i = 0; i < posts.size(); i++) {
+            rows.add(new Object[]{postIds[i], ContentCodec.compress(posts.get(i).getContent())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CONTENT, rows);
+    }
+
+    // inserts the comments of posts.get(i) under postIds[i], returns how many comments were written
+    public int insertComments(List<PostDTO> posts, long[] postIds, Instant createdAt){
+        List<BatchCommentDTO> comments = new ArrayList<>();
+        for (int i = 0; i < posts.size(); i++) {
+            if(posts.get(i).getComments() == null){
+                continue;
+            }
+            for (CommentDTO comment : posts.get(i).getComments()) {
+                BatchCommentDTO row = new BatchCommentDTO();
+                row.setPostId(postIds[i]);
+                row.setName(comment.getName());
+                row.setEmail(comment.getEmail());
+                row.setBody(comment.getBody());
+                comments.add(row);
+            }
+        }
+        if(!comments.isEmpty()){
+            insertComments(comments, createdAt);
+        }
+        return comments.size();
+    }
+
+    // inserts top-level comments in one batch and returns their generated ids, in the order of comments.
+    // Their paths need the ids, so they are set with a second batch (run both in one transaction)
+    public long[] insertComments(List<BatchCommentDTO> comments, Instant createdAt){
+        Timestamp now = Timestamp.from(createdAt);
+        long[] ids = jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_COMMENT, Statement.RETURN_GENERATED_KEYS)) {
+                for (BatchCommentDTO comment : comments) {
+                    statement.setString(1, comment.getName());
+                    statement.setString(2, comment.getEmail());
+                    statement.setString(3, comment.getBody());
+                    statement.setLong(4, comment.getPostId());
+                    statement.setTimestamp(5, now);
+                    statement.setTimestamp(6, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                long[] generated = new long[comments.size()];
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < generated.length && keys.next(); i++) {
+                        generated[i] = keys.getLong(1);
+                    }
+                }
+                return generated;
+            }
+        });
+        List<Object[]> paths = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            paths.add(new Object[]{CommentPath.segment(id), id});
+        }
+        jdbcTemplate.batchUpdate(SET_COMMENT_PATH, paths);
+        return ids;
+    }
+
+    // what PostRepository.commentAdded does for one comment, for many comments per post in one batch.
+    // createdAt is the one the comments were inserted with
+    public void addComments(Map<Long, Integer> commentsByPostId, Instant createdAt){
+        Timestamp now = Timestamp.from(createdAt);
+        List<Object[]> rows = new ArrayList<>(commentsByPostId.size());
+        commentsByPostId.forEach((postId, count) -> rows.add(new Object[]{count, now, now, now, postId}));
+        jdbcTemplate.batchUpdate(ADD_COMMENTS, rows);
+    }
+}
@@ -1,9 +1,26 @@
 package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.PostSummaryDTO;
+import com.springboot.blog.payload.ResourceVersion;
+import com.springboot.blog.utils.AppConstants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /*
 note: Why don't need repository annotation:
@@ -13,6 +30,96 @@ Error Handling: @Repository helps in converting database errors to Spring errors
 
 Finding Beans: Spring looks for components (like services, repositories) to manage. @Repository tells Spring, "Hey, I'm here!". But again, with Spring Data JPA, Spring already knows it's there.
  */
-public interface PostRepository extends JpaRepository<Post, Long> {
-    List<Post> findByCategoryId(Long categoryId);
+public interface PostRepository extends JpaRepository<Post, Long>, PostRepositoryCustom {
+    // page over ids only, so limit/offset is applied in SQL and not in memory (which is what
+    // happens when a collection fetch join is combined with a Pageable)
+    @Query(value = "select p.id from Post p", countQuery = "select count(p) from Post p")
+    Page<Long> findPageOfIds(Pageable pageable);
+
+    // same without the count query, one extra row is read to tell whether there is a next page
+    @Query("select p.id from Post p")
+    Slice<Long> findSliceOfIds(Pageable pageable);
+
+    // which of the given posts exist, one IN query on the primary key
+    @Query("select p.id from Post p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    long countByCategoryId(Long categoryId);
+
+    // summary rows straight into the DTO, no Post entities, no content and no comment rows are loaded
+    @Query("select new com.springboot.blog.payload.PostSummaryDTO(p.id, p.title, p.description, p.category.id, " +
+            "p.commentCount, p.lastCommentAt) from Post p")
+    Slice<PostSummaryDTO> findSummaries(Pageable pageable);
+
+    @Query("select new com.springboot.blog.payload.PostSummaryDTO(p.id, p.title, p.description, p.category.id, " +
+            "p.commentCount, p.lastCommentAt) from Post p where p.id in :ids")
+    List<PostSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /*
+    Every post in id order over one forward-only cursor, read only so Hibernate keeps no snapshots.
+    Must be consumed inside a transaction and closed. MySQL only honours the fetch size with useCursorFetch=true
+    on the JDBC url, otherwise Connector/J reads the whole result into memory. CursorFetchCheck warns at startup
+    when it is missing.
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + AppConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Post p order by p.id")
+    Stream<Post> streamAllOrderById();
+
+    // second step of a paged listing: load the posts of one page together with their comments in one query
+    @Query("select distinct p from Post p left join fetch p.comments where p.id in :ids")
+    List<Post> findAllWithCommentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.springboot.blog.payload.ResourceVersion(p.version, p.updatedAt) from Post p where p.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    // a comment of the post changed: bump the post's version so its ETag and cached copies go stale
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.version = p.version + 1, p.updatedAt = :now where p.id = :id")
+    int touch(@Param("id") Long id, @Param("now") Instant now);
+
+    /*
+    lastCommentAt is the created_at of the post's newest remaining comment (updated_at for comments from before
+    created_at existed), null without comments. The online writes below keep it that way and recountComments
+    computes exactly that, so a repair leaves a consistent row unchanged.
+     */
+
+    // a comment created at `now` was added: count, last activity and version move together in one atomic UPDATE,
+    // 0 if there is no such post. A comment committed out of order doesn't move lastCommentAt back
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.commentCount = p.commentCount + 1, " +
+            "p.lastCommentAt = case when p.lastCommentAt is null or p.lastCommentAt < :now then :now else p.lastCommentAt end, " +
+            "p.version = p.version + 1, p.updatedAt = :now where p.id = :id")
+    int commentAdded(@Param("id") Long id, @Param("now") Instant now);
+
+    // run after the comments were deleted, lastCommentAt falls back to the newest comment that is left
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.commentCount = case when p.commentCount > :count then p.commentCount - :count else 0 end, " +
+            "p.lastCommentAt = (select max(coalesce(c.createdAt, c.updatedAt)) from Comment c where c.post.id = p.id), " +
+            "p.version = p.version + 1, p.updatedAt = :now where p.id = :id")
+    int commentsRemoved(@Param("id") Long id, @Param("count") long count, @Param("now") Instant now);
+
+    // recomputes both from the comments table
+    @Modifying
+    @Query("update Post p set p.commentCount = (select count(c) from Comment c where c.post.id = p.id), " +
+            "p.lastCommentAt = (select max(coalesce(c.createdAt, c.updatedAt)) from Comment c where c.post.id = p.id) " +
+            "where p.id in :ids")
+    int recountComments(@Param("ids") Collection<Long> ids);
+
+    // deletes the row only, its comments have to be gone already (PostBulkDeleter)
+    @Modifying
+    @Query("delete from Post p where p.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Post p where p.id in :ids")
+    int bulkDeleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.id from Post p where p.category.id = :categoryId order by p.id")
+    List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
 }
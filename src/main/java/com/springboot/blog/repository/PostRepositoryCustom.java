@@ -0,0 +1,30 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.payload.PostSummaryDTO;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// queries that Spring Data can't derive, implemented by hand in PostRepositoryCustomImpl
+public interface PostRepositoryCustom {
+
+    /*
+    Keyset pagination: ids of the next `limit` posts ordered by (sortBy, id) that come after the row
+    (lastValue, lastId). lastValue is the sort key in its string form. Pass lastId = null for the first page.
+     */
+    List<Long> findIdsAfter(String sortBy, Sort.Direction direction, String lastValue, Long lastId, int limit);
+
+    // like findSummaries, but only the given PostSummaryDTO.FIELDS are selected, the others stay null
+    Slice<PostSummaryDTO> findSummaryFields(Collection<String> fields, Pageable pageable);
+
+    /*
+    Keyset page of the summaries of a category's posts ordered by id, read from the (category_id, id) index.
+    The category is left joined in the same query: empty when the category doesn't exist, an empty list when
+    it has no posts after lastId.
+     */
+    Optional<List<PostSummaryDTO>> findSummariesByCategoryAfter(Long categoryId, Sort.Direction direction, Long lastId, int limit);
+}
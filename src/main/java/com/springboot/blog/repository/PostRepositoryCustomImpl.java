@@ -0,0 +1,183 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.PostSummaryDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public class PostRepositoryCustomImpl implements PostRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIdsAfter(String sortBy, Sort.Direction direction, String lastValue, Long lastId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Post> post = query.from(Post.class);
+        Path<Long> id = post.get("id");
+        Path<Comparable<Object>> key = post.get(sortKey(post, sortBy));
+        boolean ascending = direction.isAscending();
+        boolean sortById = "id".equals(sortBy);
+
+        query.select(id);
+        if(lastId != null){
+            // WHERE (key, id) > (lastValue, lastId), spelled out so any index on (key, id) can be used
+            Predicate afterId = ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+            if(sortById){
+                query.where(afterId);
+            } else if(lastValue == null){
+                // NULLs sort first ascending and last descending (as on MySQL): ascending goes on with the
+                // remaining NULLs and then every row with a value, descending only with the remaining NULLs
+                Predicate nullAfterId = cb.and(cb.isNull(key), afterId);
+                query.where(ascending ? cb.or(nullAfterId, cb.isNotNull(key)) : nullAfterId);
+            } else {
+                Comparable<Object> value = toKeyValue(lastValue, key.getJavaType());
+                Predicate afterKey = ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+                Predicate after = cb.or(afterKey, cb.and(cb.equal(key, value), afterId));
+                query.where(ascending ? after : cb.or(after, cb.isNull(key)));
+            }
+        }
+        if(sortById){
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            query.orderBy(ascending ? cb.asc(key) : cb.desc(key), ascending ? cb.asc(id) : cb.desc(id));
+        }
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Optional<List<PostSummaryDTO>> findSummariesByCategoryAfter(Long categoryId, Sort.Direction direction, Long lastId, int limit) {
+        String after = lastId == null ? "" : direction.isAscending() ? " and p.id > :lastId" : " and p.id < :lastId";
+        TypedQuery<PostSummaryDTO> query = entityManager.createQuery(
+                "select new com.springboot.blog.payload.PostSummaryDTO(p.id, p.title, p.description, c.id, " +
+                        "p.commentCount, p.lastCommentAt) " +
+                        "from Category c left join Post p on p.category = c" + after + " " +
+                        "where c.id = :categoryId order by p.id " + (direction.isAscending() ? "asc" : "desc"),
+                PostSummaryDTO.class);
+        query.setParameter("categoryId", categoryId);
+        if(lastId != null){
+            query.setParameter("lastId", lastId);
+        }
+        List<PostSummaryDTO> rows = query.setMaxResults(limit).getResultList();
+        if(rows.isEmpty()){
+            return Optional.empty();
+        }
+        // the category matched no post, the left join still returns it once with a null post
+        return Optional.of(rows.get(0).getId() == null ? List.of() : rows);
+    }
+
+    @Override
+    public Slice<PostSummaryDTO> findSummaryFields(Collection<String> fields, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Post> post = query.from(Post.class);
+
+        Set<String> selected = new LinkedHashSet<>(fields);
+        List<Selection<?>> selections = new ArrayList<>(selected.size());
+        for (String field : selected) {
+            selections.add(summaryField(post, field).alias(field));
+        }
+        query.multiselect(selections);
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), post, cb));
+
+        // read one row more than the page to know whether there is a next one
+        List<Tuple> rows = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+
+        List<PostSummaryDTO> content = new ArrayList<>(Math.min(rows.size(), pageable.getPageSize()));
+        for (Tuple row : hasNext ? rows.subList(0, pageable.getPageSize()) : rows) {
+            PostSummaryDTO summary = new PostSummaryDTO();
+            for (String field : selected) {
+                setSummaryField(summary, field, row.get(field));
+            }
+            content.add(summary);
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    private Expression<?> summaryField(Root<Post> post, String field){
+        return switch (field) {
+            case "id", "title", "description", "commentCount", "lastCommentAt" -> post.get(field);
+            case "categoryId" -> post.get("category").get("id"); // read from the foreign key, no join
+            default -> throw new IllegalArgumentException("Unknown post summary field: " + field
+                    + ", expected any of " + PostSummaryDTO.FIELDS);
+        };
+    }
+
+    private void setSummaryField(PostSummaryDTO summary, String field, Object value){
+        switch (field) {
+            case "id" -> summary.setId((Long) value);
+            case "title" -> summary.setTitle((String) value);
+            case "description" -> summary.setDescription((String) value);
+            case "categoryId" -> summary.setCategoryId((Long) value);
+            case "commentCount" -> summary.setCommentCount((Long) value);
+            case "lastCommentAt" -> summary.setLastCommentAt((Instant) value);
+            default -> throw new IllegalArgumentException("Unknown post summary field: " + field);
+        }
+    }
+
+    // only plain columns can be used as a keyset, not associations like comments or category
+    private String sortKey(Root<Post> post, String sortBy){
+        Attribute<? super Post, ?> attribute;
+        try {
+            attribute = post.getModel().getAttribute(sortBy);
+        } catch (IllegalArgumentException ex){
+            throw new IllegalArgumentException("Unknown sort field: " + sortBy);
+        }
+        if(attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC){
+            throw new IllegalArgumentException("Posts can't be sorted by " + sortBy);
+        }
+        return sortBy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparable<Object> toKeyValue(String value, Class<?> type){
+        Object converted;
+        try {
+            if(type == Long.class || type == long.class){
+                converted = Long.valueOf(value);
+            } else if(type == Integer.class || type == int.class){
+                converted = Integer.valueOf(value);
+            } else if(type == Instant.class){
+                converted = Instant.parse(value);
+            } else if(type == LocalDateTime.class){
+                converted = LocalDateTime.parse(value);
+            } else if(type == String.class){
+                converted = value;
+            } else {
+                throw new IllegalArgumentException("Posts can't be paged by a " + type.getSimpleName() + " field");
+            }
+        } catch (RuntimeException ex){ // NumberFormatException, DateTimeParseException, missing value
+            throw new IllegalArgumentException("Invalid sort value in cursor: " + value, ex);
+        }
+        return (Comparable<Object>) converted;
+    }
+}
@@ -0,0 +1,356 @@
+package com.springboot.blog.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+In-process inverted index over the title, description and content of every post, ranked with BM25.
+
+Every indexed post gets a document number that only grows, so each term's postings list (document numbers
+and weighted term frequencies in two primitive arrays) is sorted without ever being re-sorted. A query walks
+the postings lists of its terms side by side (document at a time), scores each matching document once and
+keeps the best `limit` in a small heap, so it costs O(postings of the query terms) and allocates almost nothing.
+
+Updating a post marks its old document deleted and adds a new one. Deleted documents are skipped while
+searching and dropped by compact() once they make up a quarter of the index.
+Searches share a read lock, index updates take the write lock.
+ */
+@Component
+public class PostSearchIndex {
+    private static final float TITLE_BOOST = 3f;
+    private static final float DESCRIPTION_BOOST = 2f;
+    private static final float CONTENT_BOOST = 1f;
+    // BM25 term frequency saturation and length normalization
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "in", "is", "it", "of", "on", "or", "that", "the", "this", "to", "was", "with");
+
+    private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Postings> postingsByTerm = new HashMap<>();
+    private Map<Long, Integer> docByPostId = new HashMap<>();
+    private long[] postIds = new long[1024]; // document number -> post id
+    private float[] docLengths = new float[1024];
+    private BitSet deleted = new BitSet();
+    private int maxDoc;
+    private int deletedDocs;
+    private double totalLength; // of live documents, for the average document length
+
+    // while the index is rebuilt from the database, posts written meanwhile must not be overwritten by older rows
+    private boolean rebuilding;
+    private Set<Long> changedDuringRebuild = new HashSet<>();
+
+    public void index(long postId, String title, String description, String content){
+        lock.writeLock().lock();
+        try {
+            if(rebuilding){
+                changedDuringRebuild.add(postId);
+            }
+            addLocked(postId, title, description, content);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long postId){
+        lock.writeLock().lock();
+        try {
+            if(rebuilding){
+                changedDuringRebuild.add(postId);
+            }
+            removeLocked(postId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // drops everything, index(...) calls made from now until finishRebuild() win over rebuild(...) calls
+    public void startRebuild(){
+        lock.writeLock().lock();
+        try {
+            postingsByTerm = new HashMap<>();
+            docByPostId = new HashMap<>();
+            postIds = new long[1024];
+            docLengths = new float[1024];
+            deleted = new BitSet();
+            maxDoc = 0;
+            deletedDocs = 0;
+            totalLength = 0;
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // adds a post read by the rebuild, unless it was indexed or removed since the rebuild started
+    public void rebuild(long postId, String title, String description, String content){
+        lock.writeLock().lock();
+        try {
+            if(!changedDuringRebuild.contains(postId)){
+                addLocked(postId, title, description, content);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishRebuild(){
+        lock.writeLock().lock();
+        try {
+            rebuilding = false;
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size(){
+        lock.readLock().lock();
+        try {
+            return maxDoc - deletedDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the `limit` best matching posts, best first, together with how many posts matched at all
+    public SearchResult search(String query, int limit){
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if(terms.isEmpty() || limit < 1){
+            return new SearchResult(Collections.emptyList(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            int liveDocs = maxDoc - deletedDocs;
+            Postings[] lists = new Postings[terms.size()];
+            float[] idfs = new float[terms.size()];
+            int count = 0;
+            for (String term : terms) {
+                Postings postings = postingsByTerm.get(term);
+                if(postings != null){
+                    lists[count] = postings;
+                    // postings.size still counts deleted documents until the next compaction, close enough for idf
+                    idfs[count] = (float) Math.log(1 + (liveDocs - postings.size + 0.5) / (postings.size + 0.5));
+                    count++;
+                }
+            }
+            if(count == 0 || liveDocs == 0){
+                return new SearchResult(Collections.emptyList(), 0);
+            }
+            float averageLength = (float) (totalLength / liveDocs);
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Hit.WORST_FIRST);
+            int totalHits = 0;
+            int[] positions = new int[count];
+            while (true) {
+                // the smallest document number any list is positioned at is the next matching document
+                int doc = Integer.MAX_VALUE;
+                for (int i = 0; i < count; i++) {
+                    if(positions[i] < lists[i].size){
+                        doc = Math.min(doc, lists[i].docs[positions[i]]);
+                    }
+                }
+                if(doc == Integer.MAX_VALUE){
+                    break;
+                }
+                float score = 0;
+                float lengthNorm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                for (int i = 0; i < count; i++) {
+                    Postings postings = lists[i];
+                    if(positions[i] < postings.size && postings.docs[positions[i]] == doc){
+                        float tf = postings.freqs[positions[i]];
+                        score += idfs[i] * tf * (K1 + 1) / (tf + lengthNorm);
+                        positions[i]++;
+                    }
+                }
+                if(deleted.get(doc)){
+                    continue;
+                }
+                totalHits++;
+                if(best.size() < limit){
+                    best.add(new Hit(postIds[doc], score));
+                } else if(score > best.peek().getScore()){
+                    best.poll();
+                    best.add(new Hit(postIds[doc], score));
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(Hit.WORST_FIRST.reversed());
+            return new SearchResult(hits, totalHits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(long postId, String title, String description, String content){
+        removeLocked(postId);
+
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = addField(frequencies, title, TITLE_BOOST)
+                + addField(frequencies, description, DESCRIPTION_BOOST)
+                + addField(frequencies, content, CONTENT_BOOST);
+
+        int doc = maxDoc++;
+        if(doc == postIds.length){
+            postIds = Arrays.copyOf(postIds, doc * 2);
+            docLengths = Arrays.copyOf(docLengths, doc * 2);
+        }
+        postIds[doc] = postId;
+        docLengths[doc] = length;
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            postingsByTerm.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue());
+        }
+        docByPostId.put(postId, doc);
+        totalLength += length;
+        compactIfNeeded();
+    }
+
+    private void removeLocked(long postId){
+        Integer doc = docByPostId.remove(postId);
+        if(doc != null){
+            deleted.set(doc);
+            deletedDocs++;
+            totalLength -= docLengths[doc];
+        }
+    }
+
+    private float addField(Map<String, Float> frequencies, String text, float boost){
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, boost, Float::sum);
+        }
+        return tokens.size() * boost;
+    }
+
+    // renumbers the live documents and drops deleted ones from every postings list
+    private void compactIfNeeded(){
+        if(deletedDocs < 1024 || deletedDocs * 4 < maxDoc){
+            return;
+        }
+        int[] newDocs = new int[maxDoc];
+        int live = 0;
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if(deleted.get(doc)){
+                newDocs[doc] = -1;
+            } else {
+                newDocs[doc] = live;
+                postIds[live] = postIds[doc];
+                docLengths[live] = docLengths[doc];
+                live++;
+            }
+        }
+        postingsByTerm.values().removeIf(postings -> postings.remap(newDocs) == 0);
+        docByPostId.replaceAll((postId, doc) -> newDocs[doc]);
+        deleted = new BitSet();
+        maxDoc = live;
+        deletedDocs = 0;
+    }
+
+    // lower case runs of letters and digits, without stop words
+    static List<String> tokenize(String text){
+        List<String> tokens = new ArrayList<>();
+        if(text == null){
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if(Character.isLetterOrDigit(c)){
+                current.append(Character.toLowerCase(c));
+            } else if(current.length() > 0){
+                String token = current.toString();
+                if(token.length() <= MAX_TERM_LENGTH && !STOP_WORDS.contains(token)){
+                    tokens.add(token);
+                }
+                current.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static class Postings {
+        private int[] docs = new int[4];
+        private float[] freqs = new float[4];
+        private int size;
+
+        void add(int doc, float freq){
+            if(size == docs.length){
+                docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+                freqs = Arrays.copyOf(freqs, docs.length);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        // keeps the entries of live documents under their new numbers, returns how many are left
+        int remap(int[] newDocs){
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = newDocs[docs[i]];
+                if(doc >= 0){
+                    docs[kept] = doc;
+                    freqs[kept] = freqs[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    public static class Hit {
+        static final Comparator<Hit> WORST_FIRST =
+                Comparator.comparingDouble(Hit::getScore).thenComparing(Hit::getPostId, Comparator.reverseOrder());
+
+        private final long postId;
+        private final float score;
+
+        Hit(long postId, float score) {
+            this.postId = postId;
+            this.score = score;
+        }
+
+        public long getPostId() {
+            return postId;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    public static class SearchResult {
+        private final List<Hit> hits;
+        private final int totalHits;
+
+        SearchResult(List<Hit> hits, int totalHits) {
+            this.hits = hits;
+            this.totalHits = totalHits;
+        }
+
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        public int getTotalHits() {
+            return totalHits;
+        }
+    }
+}
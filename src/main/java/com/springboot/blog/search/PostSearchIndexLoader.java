@@ -0,0 +1,58 @@
+package com.springboot.blog.search;
+
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.entity.PostContent;
+import com.springboot.blog.repository.PostContentRepository;
+import com.springboot.blog.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// fills the search index from the database once the application is up, chunk by chunk in id order
+@Component
+public class PostSearchIndexLoader {
+    private PostRepository postRepository;
+    private PostContentRepository postContentRepository;
+    private PostSearchIndex postSearchIndex;
+    private int chunkSize;
+
+    public PostSearchIndexLoader(PostRepository postRepository, PostContentRepository postContentRepository,
+                                 PostSearchIndex postSearchIndex,
+                                 @Value("${app.search.rebuild-chunk-size:500}") int chunkSize) {
+        this.postRepository = postRepository;
+        this.postContentRepository = postContentRepository;
+        this.postSearchIndex = postSearchIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    // the web server is already accepting requests here, searches just see fewer posts until this is done
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild(){
+        postSearchIndex.startRebuild();
+        try {
+            Long lastId = null;
+            while (true) {
+                List<Long> ids = postRepository.findIdsAfter("id", Sort.Direction.ASC, null, lastId, chunkSize);
+                if(ids.isEmpty()){
+                    break;
+                }
+                Map<Long, String> contentByPostId = new HashMap<>();
+                for (PostContent postContent : postContentRepository.findAllById(ids)) {
+                    contentByPostId.put(postContent.getPostId(), postContent.getContent());
+                }
+                for (Post post : postRepository.findAllById(ids)) {
+                    postSearchIndex.rebuild(post.getId(), post.getTitle(), post.getDescription(), contentByPostId.get(post.getId()));
+                }
+                lastId = ids.get(ids.size() - 1);
+            }
+        } finally {
+            postSearchIndex.finishRebuild();
+        }
+    }
+}
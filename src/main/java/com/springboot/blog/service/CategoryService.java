@@ -1,6 +1,8 @@
 package com.springboot.blog.service;
 
 import com.springboot.blog.payload.CategoryDTO;
+import com.springboot.blog.payload.CategoryDeletionStatus;
+import com.springboot.blog.payload.ResourceVersion;
 
 import java.util.List;
 
@@ -8,10 +10,16 @@ public interface CategoryService {
     CategoryDTO addCategory(CategoryDTO categoryDTO);
     CategoryDTO getCategory(Long categoryId);
 
+    // for conditional GETs, reads only the version columns
+    ResourceVersion getCategoryVersion(Long categoryId);
+
     List<CategoryDTO> getAllCategories();
 
     CategoryDTO updateCategory(CategoryDTO categoryDTO, Long categoryId);
 
-    void deleteCategory(Long categoryId);
+    // starts deleting the category with its posts and comments in the background
+    CategoryDeletionStatus deleteCategory(Long categoryId);
+
+    CategoryDeletionStatus getDeletionStatus(String jobId);
 
 }
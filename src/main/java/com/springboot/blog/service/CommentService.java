@@ -1,17 +1,51 @@
 package com.springboot.blog.service;
 
+import com.springboot.blog.payload.BatchCommentDTO;
 import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.CommentPatchDTO;
+import com.springboot.blog.payload.CommentReceipt;
+import com.springboot.blog.payload.CursorResponse;
+import com.springboot.blog.payload.ResourceVersion;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CommentService {
     CommentDTO createComment(long postId, CommentDTO commentDTO);
 
-    List<CommentDTO> getCommentsByPostId(long postId);
+    // live stream of the post's created, updated and deleted comments
+    SseEmitter streamComments(long postId);
+
+    // true when new comments are queued and written in the background (app.comments.write-behind.enabled)
+    boolean queuesComments();
+
+    // checks the post and queues the comment, 429 when the queue is full
+    CommentReceipt queueComment(long postId, CommentDTO commentDTO);
+
+    // comments for one or many posts, returns the new comment ids in the order of comments
+    List<Long> createComments(List<BatchCommentDTO> comments);
+
+    // one keyset page of the post's comments in id (= creation) order, after is the nextCursor of the previous page
+    CursorResponse<CommentDTO> getCommentsByPostId(long postId, String after, int pageSize, String sortDir);
+
+    // the post's version changes with every comment write, empty if the post doesn't exist
+    Optional<ResourceVersion> findCommentsVersion(long postId);
 
     CommentDTO getCommentById(Long postId, Long commentId);
 
     CommentDTO updateCommentById(Long postId, Long commentId, CommentDTO commentDTO);
 
+    // changes only the fields set in commentPatchDTO
+    CommentDTO patchCommentById(Long postId, Long commentId, CommentPatchDTO commentPatchDTO);
+
+    // deletes the comment and all replies under it
     void deleteCommentById(Long postId, Long commentId);
+
+    // a post's comments (commentId null) or one comment with its replies, in thread display order, keyset paged
+    CursorResponse<CommentDTO> getCommentThread(long postId, Long commentId, String after, int pageSize);
+
+    // makes the comment, with all its replies, a reply to parentId, or a top-level comment when parentId is null
+    CommentDTO moveComment(long postId, long commentId, Long parentId);
 }
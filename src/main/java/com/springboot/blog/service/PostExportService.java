@@ -0,0 +1,9 @@
+package com.springboot.blog.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface PostExportService {
+    // writes every post with its comments as one PostDTO per line (NDJSON), in id order
+    void exportPosts(OutputStream out) throws IOException;
+}
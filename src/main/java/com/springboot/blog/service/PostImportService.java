@@ -0,0 +1,10 @@
+package com.springboot.blog.service;
+
+import com.springboot.blog.payload.PostImportReport;
+
+import java.io.InputStream;
+
+public interface PostImportService {
+    // one PostDTO per line (NDJSON), comments nested in it. Lines that fail are reported and skipped
+    PostImportReport importPosts(InputStream ndjson);
+}
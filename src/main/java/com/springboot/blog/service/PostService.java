@@ -1,19 +1,55 @@
 package com.springboot.blog.service;
 
+import com.springboot.blog.payload.CursorResponse;
 import com.springboot.blog.payload.PostDTO;
+import com.springboot.blog.payload.PostPatchDTO;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostSearchResponse;
+import com.springboot.blog.payload.PostSummaryDTO;
+import com.springboot.blog.payload.PostSummaryResponse;
+import com.springboot.blog.payload.ResourceVersion;
+import com.springboot.blog.payload.TrendingPost;
 
 import java.util.List;
 
 
 public interface PostService {
     PostDTO createPost(PostDTO postDTO);
-    PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir);
+    // count is one of AppConstants.COUNT_EXACT, COUNT_CACHED or COUNT_NONE
+    PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir, String count);
+
+    // keyset pagination: continues after the cursor instead of skipping pageNo * pageSize rows
+    CursorResponse<PostDTO> getPostsAfter(String after, int pageSize, String sortBy, String sortDir);
+    // list view without content and comments, fields selects which summary columns are read (null for all)
+    PostSummaryResponse getPostSummaries(int pageNo, int pageSize, String sortBy, String sortDir, List<String> fields);
+
+    // full text search over title, description and content, best matches first
+    PostSearchResponse searchPosts(String query, int pageNo, int pageSize);
+
     PostDTO getPostByID(long id);
 
+    // counted in memory and written to the database in batches
+    void recordView(long id);
+
+    // most read and commented posts of the window ("hour" or "day"), ranked in memory
+    List<TrendingPost> getTrendingPosts(String window, int limit);
+
+    // for conditional GETs, reads only the version columns (or a cached copy)
+    ResourceVersion getPostVersion(long id);
+
     PostDTO updatePost(PostDTO postDTO, long id);
 
+    // changes only the fields set in postPatchDTO
+    PostDTO patchPost(PostPatchDTO postPatchDTO, long id);
+
     void deletePostById(long id);
 
-    List<PostDTO> getPostByCategory(Long categoryId);
+    // recomputes commentCount and lastCommentAt of every post, returns how many posts were checked
+    long repairCommentCounts();
+
+    // keyset pages of the posts of a category in id order, after is the nextCursor of the previous page.
+    // count is none (no total), cached or exact, as for getAllPosts
+    CursorResponse<PostSummaryDTO> getPostSummariesByCategory(Long categoryId, String after, int pageSize, String sortDir, String count);
+
+    CursorResponse<PostDTO> getPostsByCategory(Long categoryId, String after, int pageSize, String sortDir, String count);
 }
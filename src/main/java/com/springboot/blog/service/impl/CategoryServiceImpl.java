@@ -2,10 +2,13 @@ package com.springboot.blog.service.impl;
 
 import com.springboot.blog.entity.Category;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.job.CategoryDeletionJobs;
+import com.springboot.blog.mapper.CategoryMapper;
 import com.springboot.blog.payload.CategoryDTO;
+import com.springboot.blog.payload.CategoryDeletionStatus;
+import com.springboot.blog.payload.ResourceVersion;
 import com.springboot.blog.repository.CategoryRepository;
 import com.springboot.blog.service.CategoryService;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,18 +17,21 @@ import java.util.stream.Collectors;
 @Service
 public class CategoryServiceImpl implements CategoryService {
     private CategoryRepository categoryRepository;
-    private ModelMapper modelMapper;
+    private CategoryMapper categoryMapper;
+    private CategoryDeletionJobs categoryDeletionJobs;
 
-    public CategoryServiceImpl(CategoryRepository categoryRepository, ModelMapper modelMapper) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryMapper categoryMapper,
+                               CategoryDeletionJobs categoryDeletionJobs) {
         this.categoryRepository = categoryRepository;
-        this.modelMapper = modelMapper;
+        this.categoryMapper = categoryMapper;
+        this.categoryDeletionJobs = categoryDeletionJobs;
     }
 
     @Override
     public CategoryDTO addCategory(CategoryDTO categoryDTO) {
-        Category category = modelMapper.map(categoryDTO, Category.class);
+        Category category = categoryMapper.mapToEntity(categoryDTO);
         Category savedCategory = categoryRepository.save(category);
-        return modelMapper.map(savedCategory, CategoryDTO.class);
+        return categoryMapper.mapToDTO(savedCategory);
     }
 
     @Override
@@ -33,14 +39,20 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(()->
                         new ResourceNotFoundException("Category", "id", categoryId));
-        return modelMapper.map(category, CategoryDTO.class);
+        return categoryMapper.mapToDTO(category);
+    }
+
+    @Override
+    public ResourceVersion getCategoryVersion(Long categoryId) {
+        return categoryRepository.findVersionById(categoryId)
+                .orElseThrow(()-> new ResourceNotFoundException("Category", "id", categoryId));
     }
 
     @Override
     public List<CategoryDTO> getAllCategories() {
         List<Category> categories = categoryRepository.findAll();
         return categories.stream().map((category) ->
-            modelMapper.map(category, CategoryDTO.class)).collect(Collectors.toList());
+            categoryMapper.mapToDTO(category)).collect(Collectors.toList());
     }
 
     @Override
@@ -50,13 +62,16 @@ public class CategoryServiceImpl implements CategoryService {
         category.setName(categoryDTO.getName());
         category.setDescription(categoryDTO.getDescription());
         Category updatedCategory = categoryRepository.save(category);
-        return modelMapper.map(updatedCategory, CategoryDTO.class);
+        return categoryMapper.mapToDTO(updatedCategory);
     }
 
     @Override
-    public void deleteCategory(Long categoryId) {
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(()-> new ResourceNotFoundException("Category", "Id", categoryId));
-        categoryRepository.delete(category);
+    public CategoryDeletionStatus deleteCategory(Long categoryId) {
+        return categoryDeletionJobs.submit(categoryId);
+    }
+
+    @Override
+    public CategoryDeletionStatus getDeletionStatus(String jobId) {
+        return categoryDeletionJobs.status(jobId);
     }
 }
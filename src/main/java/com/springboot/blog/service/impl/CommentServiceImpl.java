@@ -1,18 +1,46 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.PostDtoCache;
+import com.springboot.blog.cache.SingleFlight;
 import com.springboot.blog.entity.Comment;
-import com.springboot.blog.entity.Post;
 import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.job.CommentWriteBehind;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.payload.BatchCommentDTO;
 import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.CommentPatchDTO;
+import com.springboot.blog.payload.CommentReceipt;
+import com.springboot.blog.payload.CommentThreadPosition;
+import com.springboot.blog.payload.CursorResponse;
+import com.springboot.blog.payload.ResourceVersion;
 import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostJdbcWriter;
 import com.springboot.blog.repository.PostRepository;
 import com.springboot.blog.service.CommentService;
-import org.modelmapper.ModelMapper;
+import com.springboot.blog.stats.TrendingPosts;
+import com.springboot.blog.stream.CommentStreams;
+import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.CommentPath;
+import com.springboot.blog.utils.PageCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,94 +48,354 @@ public class CommentServiceImpl implements CommentService {
     private CommentRepository commentRepository;
     private PostRepository postRepository;
 
-    private ModelMapper mapper;
-    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, ModelMapper mapper){
+    private CommentMapper commentMapper;
+    private PostDtoCache postDtoCache; // cached posts embed their comments
+    // concurrent reads of the same page of a post's comments share a single query, keyed by commentPageKey
+    private SingleFlight<String, CursorResponse<CommentDTO>> commentLoads = new SingleFlight<>();
+    private int maxPageSize;
+    private PostJdbcWriter postJdbcWriter;
+    private int maxBatchSize;
+    private int batchChunkSize;
+    private CommentWriteBehind commentWriteBehind;
+    private CommentStreams commentStreams; // live comment events, published after each commit
+    // a comment and the post's comment count are written in one transaction
+    private TransactionTemplate transactionTemplate;
+    private TrendingPosts trendingPosts;
+
+    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository,
+                              CommentMapper commentMapper, PostDtoCache postDtoCache,
+                              PlatformTransactionManager transactionManager, TrendingPosts trendingPosts,
+                              @Value("${app.comments.max-page-size:100}") int maxPageSize,
+                              PostJdbcWriter postJdbcWriter,
+                              @Value("${app.comments.max-batch-size:10000}") int maxBatchSize,
+                              @Value("${app.comments.batch-chunk-size:1000}") int batchChunkSize,
+                              CommentWriteBehind commentWriteBehind, CommentStreams commentStreams){
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
-        this.mapper = mapper;
+        this.commentMapper = commentMapper;
+        this.postDtoCache = postDtoCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.trendingPosts = trendingPosts;
+        this.maxPageSize = maxPageSize;
+        this.postJdbcWriter = postJdbcWriter;
+        this.maxBatchSize = maxBatchSize;
+        this.batchChunkSize = batchChunkSize;
+        this.commentWriteBehind = commentWriteBehind;
+        this.commentStreams = commentStreams;
     }
     @Override
     public CommentDTO createComment(long postId, CommentDTO commentDTO) {
-        Comment comment = mapToEntity(commentDTO);
-
-        // retrieve post entity by id
-        Post post = postRepository.findById(postId).orElseThrow(()->new ResourceNotFoundException("Post", "id", postId));
+        Comment comment = commentMapper.mapToEntity(commentDTO);
 
-        // Set post to comment entity
-        comment.setPost(post);
+        Comment newComment = transactionTemplate.execute(status -> {
+            // bumps the post's comment count, also tells whether the post exists without loading it
+            Instant now = Instant.now();
+            if(postRepository.commentAdded(postId, now) == 0){
+                throw new ResourceNotFoundException("Post", "id", postId);
+            }
+            if(commentDTO.getParentId() != null){
+                // a reply, its path continues the parent's (Comment.assignPath)
+                String parentPath = commentRepository.findPathByIdAndPostId(commentDTO.getParentId(), postId)
+                        .orElseThrow(()->missingComment(postId, commentDTO.getParentId()));
+                if(CommentPath.depth(parentPath) >= CommentPath.MAX_DEPTH){
+                    throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Replies can be nested at most " + CommentPath.MAX_DEPTH + " levels deep");
+                }
+                comment.setParentId(commentDTO.getParentId());
+                comment.setParentPath(parentPath);
+            }
+            // Set post to comment entity
+            comment.setPost(postRepository.getReferenceById(postId));
+            comment.setCreatedAt(now); // the post's lastCommentAt
+            // save comment entity to DB
+            return commentRepository.save(comment);
+        });
+        postDtoCache.invalidate(postId);
+        forgetCommentLoads(postId);
+        trendingPosts.recordComment(postId);
 
-        // save comment entity to DB
-        Comment newComment = commentRepository.save(comment);
+        CommentDTO createdComment = commentMapper.mapToDTO(newComment);
+        commentStreams.publish(postId, CommentStreams.CREATED, createdComment.getId(), createdComment);
+        return createdComment;
+    }
 
-        return mapToDTO(newComment);
+    @Override
+    public SseEmitter streamComments(long postId) {
+        if(postDtoCache.getIfPresent(postId) == null && !postRepository.existsById(postId)){
+            throw new ResourceNotFoundException("Post", "id", postId);
+        }
+        return commentStreams.subscribe(postId);
     }
 
     @Override
-    public List<CommentDTO> getCommentsByPostId(long postId) {
-        List<Comment> comments = commentRepository.findCommentByPostId(postId);
+    public boolean queuesComments() {
+        return commentWriteBehind.isEnabled();
+    }
 
-        // convert list of comment entities to list of comment dto
-        return comments.stream().map(comment->mapToDTO(comment)).collect(Collectors.toList());
+    @Override
+    public CommentReceipt queueComment(long postId, CommentDTO commentDTO) {
+        // a cached post is known to exist, so a hot post costs no query at all
+        if(postDtoCache.getIfPresent(postId) == null && !postRepository.existsById(postId)){
+            throw new ResourceNotFoundException("Post", "id", postId);
+        }
+        CommentReceipt receipt = commentWriteBehind.enqueue(postId, commentDTO);
+        trendingPosts.recordComment(postId);
+        return receipt;
     }
 
+    /*
+    All posts are checked with one IN query up front, then the comments are written in chunks of
+    app.comments.batch-chunk-size, each chunk one batched INSERT plus one batched comment count update in its own
+    transaction. If a chunk fails, the chunks before it stay written.
+    Batch comments don't count towards trending posts, they mostly come from imports and tools.
+     */
     @Override
-    public CommentDTO getCommentById(Long postId, Long commentId) {
-        Post post = postRepository.findById(postId).orElseThrow(()->new ResourceNotFoundException("Post", "id", postId));
+    public List<Long> createComments(List<BatchCommentDTO> comments) {
+        if(comments.size() > maxBatchSize){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "At most " + maxBatchSize + " comments can be created at once");
+        }
+        Set<Long> postIds = comments.stream().map(BatchCommentDTO::getPostId).collect(Collectors.toSet());
+        Set<Long> existing = new HashSet<>(postRepository.findExistingIds(postIds));
+        for (BatchCommentDTO comment : comments) {
+            if(!existing.contains(comment.getPostId())){
+                throw new ResourceNotFoundException("Post", "id", comment.getPostId());
+            }
+        }
 
-        //retrieve comment by id
-        Comment comment = commentRepository.findById(commentId).orElseThrow(()->new ResourceNotFoundException("Comment", "id", commentId));
+        List<Long> ids = new ArrayList<>(comments.size());
+        for (int from = 0; from < comments.size(); from += batchChunkSize) {
+            List<BatchCommentDTO> chunk = comments.subList(from, Math.min(from + batchChunkSize, comments.size()));
+            Map<Long, Integer> commentsByPostId = new HashMap<>();
+            for (BatchCommentDTO comment : chunk) {
+                commentsByPostId.merge(comment.getPostId(), 1, Integer::sum);
+            }
+            long[] chunkIds = transactionTemplate.execute(status -> {
+                Instant now = Instant.now();
+                long[] generated = postJdbcWriter.insertComments(chunk, now);
+                postJdbcWriter.addComments(commentsByPostId, now);
+                return generated;
+            });
+            for (Long postId : commentsByPostId.keySet()) {
+                postDtoCache.invalidate(postId);
+                forgetCommentLoads(postId);
+            }
+            for (int i = 0; i < chunkIds.length; i++) {
+                ids.add(chunkIds[i]);
+                BatchCommentDTO comment = chunk.get(i);
+                commentStreams.publish(comment.getPostId(), CommentStreams.CREATED, chunkIds[i],
+                        commentMapper.mapToDTO(chunkIds[i], comment));
+            }
+        }
+        return ids;
+    }
 
-        //check if the comment belongs to the post, if not throw exception
-        if(!comment.getPost().getId().equals(post.getId())){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to the post");
+    @Override
+    public CursorResponse<CommentDTO> getCommentsByPostId(long postId, String after, int pageSize, String sortDir) {
+        if(pageSize < 1 || pageSize > maxPageSize){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + maxPageSize);
+        }
+        PageCursor cursor = after == null ? null : PageCursor.decode(after);
+        if(cursor != null){
+            if(!AppConstants.DEFAULT_SORT_BY.equals(cursor.getSortBy())){
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+            }
+            sortDir = cursor.getSortDir(); // a cursor continues in the direction it was created with
         }
-        return mapToDTO(comment);
+        Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+        String key = commentPageKey(postId, direction, pageSize, after);
+
+        return commentLoads.load(key, () -> {
+            // fetch one extra comment to know whether there is a next page
+            Pageable limit = PageRequest.of(0, pageSize + 1);
+            List<Comment> comments = direction == Sort.Direction.ASC
+                    ? commentRepository.findPageAfter(postId, cursor == null ? 0 : cursor.getId(), limit)
+                    : commentRepository.findPageBefore(postId, cursor == null ? Long.MAX_VALUE : cursor.getId(), limit);
+            boolean last = comments.size() <= pageSize;
+            List<CommentDTO> content = (last ? comments : comments.subList(0, pageSize)).stream()
+                    .map(comment->commentMapper.mapToDTO(comment)).collect(Collectors.toList());
+            String nextCursor = last ? null : new PageCursor(AppConstants.DEFAULT_SORT_BY, direction.name(),
+                    content.get(content.size() - 1).getId(), null).encode();
+            return new CursorResponse<>(content, pageSize, nextCursor, last);
+        });
+    }
+
+    @Override
+    public Optional<ResourceVersion> findCommentsVersion(long postId) {
+        return postRepository.findVersionById(postId);
+    }
+
+    @Override
+    public CommentDTO getCommentById(Long postId, Long commentId) {
+        Comment comment = commentRepository.findByIdAndPostId(commentId, postId)
+                .orElseThrow(()->missingComment(postId, commentId));
+        return commentMapper.mapToDTO(comment);
     }
 
     @Override
     public CommentDTO updateCommentById(Long postId, Long commentId, CommentDTO commentDTO) {
-        Post post = postRepository.findById(postId).orElseThrow(()->new ResourceNotFoundException("Post", "id", postId));
-        Comment comment = commentRepository.findById(commentId).orElseThrow(()->new ResourceNotFoundException("Comment", "id", commentId));
-        if(!comment.getPost().getId().equals(post.getId())){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to the post");
+        CommentThreadPosition position = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            if(commentRepository.updateByIdAndPostId(commentId, postId, commentDTO.getName(), commentDTO.getEmail(),
+                    commentDTO.getBody(), now) == 0){
+                throw missingComment(postId, commentId);
+            }
+            postRepository.touch(postId, now);
+            return commentRepository.findThreadPositionById(commentId).orElseThrow();
+        });
+        postDtoCache.invalidate(postId);
+        forgetCommentLoads(postId);
+
+        // the written fields come from the request, only the thread fields are read back, so stream clients
+        // keep a reply where it is
+        CommentDTO updatedComment = new CommentDTO();
+        updatedComment.setId(commentId);
+        updatedComment.setName(commentDTO.getName());
+        updatedComment.setEmail(commentDTO.getEmail());
+        updatedComment.setBody(commentDTO.getBody());
+        updatedComment.setParentId(position.getParentId());
+        updatedComment.setDepth(position.getDepth());
+        commentStreams.publish(postId, CommentStreams.UPDATED, commentId, updatedComment);
+        return updatedComment;
+    }
+
+    @Override
+    public CommentDTO patchCommentById(Long postId, Long commentId, CommentPatchDTO commentPatchDTO) {
+        Comment comment = commentRepository.findByIdAndPostId(commentId, postId)
+                .orElseThrow(()->missingComment(postId, commentId));
+        boolean changed = false;
+        if(commentPatchDTO.getName() != null && !commentPatchDTO.getName().equals(comment.getName())){
+            comment.setName(commentPatchDTO.getName());
+            changed = true;
+        }
+        if(commentPatchDTO.getEmail() != null && !commentPatchDTO.getEmail().equals(comment.getEmail())){
+            comment.setEmail(commentPatchDTO.getEmail());
+            changed = true;
+        }
+        if(commentPatchDTO.getBody() != null && !commentPatchDTO.getBody().equals(comment.getBody())){
+            comment.setBody(commentPatchDTO.getBody());
+            changed = true;
+        }
+        if(!changed){
+            return commentMapper.mapToDTO(comment);
         }
-        comment.setName(commentDTO.getName());
-        comment.setEmail(commentDTO.getEmail());
-        comment.setBody(commentDTO.getBody());
 
-        Comment updatedComment = commentRepository.save(comment);
-        return mapToDTO(updatedComment);
+        // @DynamicUpdate, only the changed columns. Same transaction as the touch, like the PUT
+        Comment patchedComment = transactionTemplate.execute(status -> {
+            Comment saved = commentRepository.save(comment);
+            postRepository.touch(postId, Instant.now());
+            return saved;
+        });
+        postDtoCache.invalidate(postId);
+        forgetCommentLoads(postId);
+        CommentDTO patchedCommentDTO = commentMapper.mapToDTO(patchedComment);
+        commentStreams.publish(postId, CommentStreams.UPDATED, commentId, patchedCommentDTO);
+        return patchedCommentDTO;
     }
 
     @Override
     public void deleteCommentById(Long postId, Long commentId) {
-        Post post = postRepository.findById(postId).orElseThrow(()->new ResourceNotFoundException("Post", "id", postId));
-        Comment comment = commentRepository.findById(commentId).orElseThrow(()->new ResourceNotFoundException("Comment", "id", commentId));
-        if(!comment.getPost().getId().equals(post.getId())){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to the post");
-        }
-        commentRepository.deleteById(commentId);
-    }
-
-    private CommentDTO mapToDTO(Comment comment){
-        CommentDTO commentDTO = mapper.map(comment, CommentDTO.class);
-        /*
-        CommentDTO commentDto = new CommentDTO();
-        commentDto.setBody(comment.getBody());
-        commentDto.setId(comment.getId());
-        commentDto.setName(comment.getName());
-        commentDto.setEmail(comment.getEmail());*/
-        return commentDTO;
-    }
-
-    private Comment mapToEntity(CommentDTO commentDTO){
-        Comment comment = mapper.map(commentDTO, Comment.class);
-        /*
-        Comment comment = new Comment();
-        comment.setId(commentDTO.getId());
-        comment.setBody(commentDTO.getBody());
-        comment.setName(commentDTO.getName());
-        comment.setEmail(commentDTO.getEmail());*/
-        return comment;
+        // the comment goes with all its replies, one range delete on (post_id, path)
+        transactionTemplate.executeWithoutResult(status -> {
+            String path = commentRepository.findPathByIdAndPostId(commentId, postId)
+                    .orElseThrow(()->missingComment(postId, commentId));
+            int deleted = commentRepository.deleteSubtree(postId, CommentPath.subtreePattern(path));
+            postRepository.commentsRemoved(postId, deleted, Instant.now());
+        });
+        postDtoCache.invalidate(postId);
+        forgetCommentLoads(postId);
+        // the replies went with it, clients drop the whole subtree
+        commentStreams.publish(postId, CommentStreams.DELETED, commentId, Map.of("id", commentId));
+    }
+
+    @Override
+    public CursorResponse<CommentDTO> getCommentThread(long postId, Long commentId, String after, int pageSize) {
+        if(pageSize < 1 || pageSize > maxPageSize){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + maxPageSize);
+        }
+        PageCursor cursor = after == null ? null : PageCursor.decode(after);
+        if(cursor != null && (!THREAD_SORT.equals(cursor.getSortBy()) || cursor.getValue() == null)){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+        }
+        String pattern = "%";
+        if(commentId != null){
+            String path = commentRepository.findPathByIdAndPostId(commentId, postId)
+                    .orElseThrow(()->missingComment(postId, commentId));
+            pattern = CommentPath.subtreePattern(path);
+        }
+
+        // fetch one extra comment to know whether there is a next page
+        List<Comment> comments = commentRepository.findThreadPage(postId, pattern, cursor == null ? "" : cursor.getValue(),
+                PageRequest.of(0, pageSize + 1));
+        boolean last = comments.size() <= pageSize;
+        List<Comment> page = last ? comments : comments.subList(0, pageSize);
+        String nextCursor = null;
+        if(!last){
+            Comment lastComment = page.get(page.size() - 1);
+            nextCursor = new PageCursor(THREAD_SORT, Sort.Direction.ASC.name(), lastComment.getId(), lastComment.getPath()).encode();
+        }
+        List<CommentDTO> content = page.stream().map(comment->commentMapper.mapToDTO(comment)).collect(Collectors.toList());
+        return new CursorResponse<>(content, pageSize, nextCursor, last);
+    }
+
+    @Override
+    public CommentDTO moveComment(long postId, long commentId, Long parentId) {
+        Comment moved = transactionTemplate.execute(status -> {
+            String oldPath = commentRepository.findPathByIdAndPostId(commentId, postId)
+                    .orElseThrow(()->missingComment(postId, commentId));
+            String parentPath = null;
+            if(parentId != null){
+                parentPath = commentRepository.findPathByIdAndPostId(parentId, postId)
+                        .orElseThrow(()->missingComment(postId, parentId));
+                if(parentPath.startsWith(oldPath)){
+                    throw new BlogAPIException(HttpStatus.BAD_REQUEST, "A comment can't be moved under itself or one of its replies");
+                }
+            }
+            String newPath = CommentPath.child(parentPath, commentId);
+            String pattern = CommentPath.subtreePattern(oldPath);
+            // the deepest reply has to stay within the path column
+            int deepest = commentRepository.findMaxPathLength(postId, pattern);
+            if(deepest - oldPath.length() + newPath.length() > CommentPath.MAX_LENGTH){
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Replies can be nested at most " + CommentPath.MAX_DEPTH + " levels deep");
+            }
+
+            Instant now = Instant.now();
+            commentRepository.moveSubtree(postId, pattern, newPath, oldPath.length(),
+                    CommentPath.depth(newPath) - CommentPath.depth(oldPath));
+            commentRepository.updateParentId(commentId, parentId, now);
+            postRepository.touch(postId, now);
+            return commentRepository.findByIdAndPostId(commentId, postId).orElseThrow();
+        });
+        postDtoCache.invalidate(postId);
+        forgetCommentLoads(postId);
+        CommentDTO movedComment = commentMapper.mapToDTO(moved);
+        commentStreams.publish(postId, CommentStreams.UPDATED, commentId, movedComment);
+        return movedComment;
+    }
+
+    private static final String THREAD_SORT = "path";
+
+    private static String commentPageKey(long postId, Sort.Direction direction, int pageSize, String after){
+        return postId + "/" + direction + "/" + pageSize + "/" + after;
+    }
+
+    // every page of the post that is being loaded may have read the comments before this write
+    private void forgetCommentLoads(long postId){
+        String prefix = postId + "/";
+        commentLoads.forgetIf(key -> key.startsWith(prefix));
+    }
+
+    /*
+    Reads and writes are scoped by post id and comment id in one statement, which finds nothing both when the
+    post or the comment doesn't exist and when the comment belongs to another post.
+    Only then, on the error path, is it worked out which one it was: 404 for a missing post or comment, 400 otherwise.
+     */
+    private RuntimeException missingComment(long postId, long commentId){
+        if(!postRepository.existsById(postId)){
+            return new ResourceNotFoundException("Post", "id", postId);
+        }
+        if(!commentRepository.existsById(commentId)){
+            return new ResourceNotFoundException("Comment", "id", commentId);
+        }
+        return new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to the post");
     }
 }
@@ -0,0 +1,112 @@
+package com.springboot.blog.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.entity.PostContent;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.mapper.PostMapper;
+import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.PostDTO;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostContentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.PostExportService;
+import com.springboot.blog.utils.AppConstants;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+Posts come from one forward-only cursor and are written in chunks of AppConstants.EXPORT_FETCH_SIZE:
+the comments and the contents of a chunk are read with one IN query each, the chunk is written out and the persistence context
+is cleared, so memory holds one chunk no matter how many posts there are.
+On MySQL that needs useCursorFetch=true on the JDBC url, see CursorFetchCheck.
+ */
+@Service
+public class PostExportServiceImpl implements PostExportService {
+    private PostRepository postRepository;
+    private CommentRepository commentRepository;
+    private PostContentRepository postContentRepository;
+    private PostMapper postMapper;
+    private CommentMapper commentMapper;
+    private ObjectMapper objectMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    public PostExportServiceImpl(PostRepository postRepository, CommentRepository commentRepository,
+                                 PostContentRepository postContentRepository,
+                                 PostMapper postMapper, CommentMapper commentMapper, ObjectMapper objectMapper,
+                                 EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.postContentRepository = postContentRepository;
+        this.postMapper = postMapper;
+        this.commentMapper = commentMapper;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void exportPosts(OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            // the stream only lives as long as the transaction, so the whole export runs in one
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Post> posts = postRepository.streamAllOrderById()) {
+                    List<Post> chunk = new ArrayList<>(AppConstants.EXPORT_FETCH_SIZE);
+                    Iterator<Post> iterator = posts.iterator();
+                    while (iterator.hasNext()) {
+                        chunk.add(iterator.next());
+                        if(chunk.size() == AppConstants.EXPORT_FETCH_SIZE || !iterator.hasNext()){
+                            writeChunk(chunk, writer);
+                            chunk.clear();
+                        }
+                    }
+                } catch (IOException ex){
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex){
+            throw ex.getCause();
+        }
+    }
+
+    private void writeChunk(List<Post> chunk, SequenceWriter writer) throws IOException {
+        List<Long> postIds = chunk.stream().map(Post::getId).collect(Collectors.toList());
+        Map<Long, Set<CommentDTO>> commentsByPostId = new HashMap<>();
+        for (Comment comment : commentRepository.findByPostIdIn(postIds)) {
+            commentsByPostId.computeIfAbsent(comment.getPost().getId(), postId -> new HashSet<>())
+                    .add(commentMapper.mapToDTO(comment));
+        }
+        Map<Long, String> contentByPostId = new HashMap<>();
+        for (PostContent postContent : postContentRepository.findAllById(postIds)) {
+            contentByPostId.put(postContent.getPostId(), postContent.getContent());
+        }
+        for (Post post : chunk) {
+            PostDTO postDTO = postMapper.mapToDTO(post);
+            postDTO.setComments(commentsByPostId.getOrDefault(post.getId(), Set.of()));
+            postDTO.setContent(contentByPostId.get(post.getId()));
+            writer.write(postDTO);
+        }
+        writer.flush();
+        // detach the chunk's posts and comments, the cursor itself stays open
+        entityManager.clear();
+    }
+}
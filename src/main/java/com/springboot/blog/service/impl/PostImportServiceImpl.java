@@ -0,0 +1,180 @@
+package com.springboot.blog.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.cache.PostCountCache;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.PostDTO;
+import com.springboot.blog.payload.PostImportReport;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.PostJdbcWriter;
+import com.springboot.blog.search.PostSearchIndex;
+import com.springboot.blog.service.PostImportService;
+import com.springboot.blog.utils.AppConstants;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+Reads the upload line by line and holds at most one chunk of posts in memory. Every chunk is written with
+PostJdbcWriter in its own transaction, so a failure only rolls back that chunk. If a chunk fails (a duplicate
+title for example), its posts are written again one by one to find the bad lines and keep the good ones.
+ */
+@Service
+public class PostImportServiceImpl implements PostImportService {
+    private PostJdbcWriter postJdbcWriter;
+    private CategoryRepository categoryRepository;
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private TransactionTemplate transactionTemplate;
+    private PostCountCache postCountCache;
+    private PostSearchIndex postSearchIndex;
+    private int chunkSize;
+
+    public PostImportServiceImpl(PostJdbcWriter postJdbcWriter, CategoryRepository categoryRepository,
+                                 ObjectMapper objectMapper, Validator validator,
+                                 PlatformTransactionManager transactionManager, PostCountCache postCountCache,
+                                 PostSearchIndex postSearchIndex,
+                                 @Value("${app.import.chunk-size:500}") int chunkSize) {
+        this.postJdbcWriter = postJdbcWriter;
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.postCountCache = postCountCache;
+        this.postSearchIndex = postSearchIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public PostImportReport importPosts(InputStream ndjson) {
+        long start = System.nanoTime();
+        PostImportReport report = new PostImportReport();
+        // resolved once for the whole upload instead of one findById per post
+        Set<Long> categoryIds = new HashSet<>(categoryRepository.findAllIds());
+
+        List<PostDTO> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if(line.isBlank()){
+                    continue;
+                }
+                report.setLinesRead(report.getLinesRead() + 1);
+                PostDTO post;
+                try {
+                    post = objectMapper.readValue(line, PostDTO.class);
+                } catch (JsonProcessingException ex){
+                    fail(report, lineNumber, "Invalid JSON: " + ex.getOriginalMessage());
+                    continue;
+                }
+                String problem = validate(post, categoryIds);
+                if(problem != null){
+                    fail(report, lineNumber, problem);
+                    continue;
+                }
+                chunk.add(post);
+                chunkLines.add(lineNumber);
+                if(chunk.size() == chunkSize){
+                    writeChunk(chunk, chunkLines, report);
+                    chunk.clear();
+                    chunkLines.clear();
+                }
+            }
+            writeChunk(chunk, chunkLines, report);
+        } catch (IOException ex){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Could not read the upload: " + ex.getMessage());
+        } finally {
+            postCountCache.invalidateAll();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        report.setElapsedMillis(elapsedNanos / 1_000_000);
+        report.setPostsPerSecond(elapsedNanos == 0 ? 0 : report.getPostsImported() * 1e9 / elapsedNanos);
+        return report;
+    }
+
+    private void writeChunk(List<PostDTO> chunk, List<Long> chunkLines, PostImportReport report){
+        if(chunk.isEmpty()){
+            return;
+        }
+        try {
+            write(chunk, report);
+        } catch (DataAccessException ex){
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    write(List.of(chunk.get(i)), report);
+                } catch (DataAccessException rowException){
+                    fail(report, chunkLines.get(i), rowException.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    // writes the posts and their comments in one transaction, the report is only updated once it committed
+    private void write(List<PostDTO> posts, PostImportReport report){
+        long[] ids = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            long[] postIds = postJdbcWriter.insertPosts(posts, now);
+            postJdbcWriter.insertContents(posts, postIds);
+            postJdbcWriter.insertComments(posts, postIds, now);
+            return postIds;
+        });
+        for (int i = 0; i < posts.size(); i++) {
+            PostDTO post = posts.get(i);
+            postSearchIndex.index(ids[i], post.getTitle(), post.getDescription(), post.getContent());
+            report.setCommentsImported(report.getCommentsImported() + (post.getComments() == null ? 0 : post.getComments().size()));
+        }
+        report.setPostsImported(report.getPostsImported() + posts.size());
+    }
+
+    // the same checks as @Valid on POST /api/posts and /comments, plus the category, null if the line is fine
+    private String validate(PostDTO post, Set<Long> categoryIds){
+        List<String> problems = new ArrayList<>();
+        validator.validate(post).forEach(violation -> problems.add(describe(violation)));
+        if(post.getComments() != null){
+            for (CommentDTO comment : post.getComments()) {
+                validator.validate(comment).forEach(violation -> problems.add("comments." + describe(violation)));
+            }
+        }
+        if(!problems.isEmpty()){
+            return problems.stream().sorted().collect(Collectors.joining(", "));
+        }
+        if(post.getCategoryId() == null || !categoryIds.contains(post.getCategoryId())){
+            return "Category not found with id: '" + post.getCategoryId() + "'";
+        }
+        return null;
+    }
+
+    private String describe(ConstraintViolation<?> violation){
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private void fail(PostImportReport report, long line, String message){
+        report.setLinesFailed(report.getLinesFailed() + 1);
+        if(report.getErrors().size() < AppConstants.MAX_IMPORT_ERRORS){
+            report.getErrors().add(new PostImportReport.LineError(line, message));
+        }
+    }
+}
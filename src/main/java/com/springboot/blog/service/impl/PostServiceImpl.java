@@ -1,36 +1,93 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.PostCountCache;
+import com.springboot.blog.cache.PostDtoCache;
 import com.springboot.blog.entity.Category;
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.entity.PostContent;
+import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.job.CommentCountRepairJob;
+import com.springboot.blog.mapper.PostMapper;
+import com.springboot.blog.payload.CursorResponse;
 import com.springboot.blog.payload.PostDTO;
+import com.springboot.blog.payload.PostPatchDTO;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostSearchHit;
+import com.springboot.blog.payload.PostSearchResponse;
+import com.springboot.blog.payload.PostSummaryDTO;
+import com.springboot.blog.payload.PostSummaryResponse;
+import com.springboot.blog.payload.ResourceVersion;
+import com.springboot.blog.payload.TrendingPost;
 import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.PostBulkDeleter;
+import com.springboot.blog.repository.PostContentRepository;
 import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.search.PostSearchIndex;
 import com.springboot.blog.service.PostService;
-import org.modelmapper.ModelMapper;
+import com.springboot.blog.stats.PostViewCounter;
+import com.springboot.blog.stats.TrendingPosts;
+import com.springboot.blog.stream.CommentStreams;
+import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.PageCursor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class PostServiceImpl implements PostService {
 
     private PostRepository postRepository;
-    ModelMapper mapper;
+    private PostMapper postMapper;
     private CategoryRepository categoryRepository;
+    private PostCountCache postCountCache;
+    private PostDtoCache postDtoCache;
+    private PostSearchIndex postSearchIndex;
+    private PostBulkDeleter postBulkDeleter;
+    private PostContentRepository postContentRepository;
+    private TransactionTemplate transactionTemplate;
+    private CommentCountRepairJob commentCountRepairJob;
+    private PostViewCounter postViewCounter;
+    private TrendingPosts trendingPosts;
+    private CommentStreams commentStreams;
 
     // @Autowired if the class has only one attribute, then it can be omitted
-    public PostServiceImpl(PostRepository postRepository, ModelMapper mapper,
-                           CategoryRepository categoryRepository) {
+    public PostServiceImpl(PostRepository postRepository, PostMapper postMapper,
+                           CategoryRepository categoryRepository, PostCountCache postCountCache,
+                           PostDtoCache postDtoCache, PostSearchIndex postSearchIndex,
+                           PostBulkDeleter postBulkDeleter, PostContentRepository postContentRepository,
+                           PlatformTransactionManager transactionManager, CommentCountRepairJob commentCountRepairJob,
+                           PostViewCounter postViewCounter, TrendingPosts trendingPosts,
+                           CommentStreams commentStreams) {
         this.postRepository = postRepository;
-        this.mapper = mapper;
+        this.postMapper = postMapper;
         this.categoryRepository = categoryRepository;
+        this.postCountCache = postCountCache;
+        this.postDtoCache = postDtoCache;
+        this.postSearchIndex = postSearchIndex;
+        this.postBulkDeleter = postBulkDeleter;
+        this.postContentRepository = postContentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.commentCountRepairJob = commentCountRepairJob;
+        this.postViewCounter = postViewCounter;
+        this.trendingPosts = trendingPosts;
+        this.commentStreams = commentStreams;
     }
 
     @Override
@@ -38,18 +95,25 @@ public class PostServiceImpl implements PostService {
         Category category = categoryRepository.findById(postDTO.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", postDTO.getCategoryId()));
         //convert DTO to entity
-        Post post = mapToEntity(postDTO);
+        Post post = postMapper.mapToEntity(postDTO);
         post.setCategory(category);// you only know the categoryId in postDTO, so you need to set category again
-        Post newPost = postRepository.save(post); // save into database
+        Post newPost = transactionTemplate.execute(status -> {
+            Post savedPost = postRepository.save(post); // save into database
+            postContentRepository.save(new PostContent(savedPost, postDTO.getContent()));
+            return savedPost;
+        });
+        postCountCache.invalidate(category.getId());
+        postSearchIndex.index(newPost.getId(), newPost.getTitle(), newPost.getDescription(), postDTO.getContent());
 
         //convert entity to DTO
-        PostDTO postResponse = mapToDTO(newPost);
+        PostDTO postResponse = postMapper.mapToDTOWithComments(newPost);
+        postResponse.setContent(postDTO.getContent());
 
         return postResponse;
     }
 
     @Override
-    public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir) {
+    public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir, String count) {
         // based on sortDir to create Sort object
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
@@ -57,80 +121,344 @@ public class PostServiceImpl implements PostService {
         // create pageable instance
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
 
-        Page<Post> posts = postRepository.findAll(pageable);
+        // page over ids first, then load the posts of this page with their comments in one query.
+        // only the exact mode runs a COUNT, the others read a slice (one row more than the page)
+        Slice<Long> posts;
+        Long totalElement = null;
+        Integer totalPages = null;
+        if(count.equalsIgnoreCase(AppConstants.COUNT_EXACT)){
+            Page<Long> page = postRepository.findPageOfIds(pageable);
+            totalElement = page.getTotalElements();
+            totalPages = page.getTotalPages();
+            posts = page;
+        } else if(count.equalsIgnoreCase(AppConstants.COUNT_CACHED)){
+            posts = postRepository.findSliceOfIds(pageable);
+            totalElement = postCountCache.countAll();
+            totalPages = (int) Math.ceil((double) totalElement / pageSize);
+        } else if(count.equalsIgnoreCase(AppConstants.COUNT_NONE)){
+            posts = postRepository.findSliceOfIds(pageable);
+        } else {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "count must be one of exact, cached or none");
+        }
 
         // get content for page object
-        List<Post> listOfPost = posts.getContent();
+        List<Post> listOfPost = findAllWithComments(posts.getContent());
 
-        List<PostDTO> content = listOfPost.stream().map(post -> mapToDTO(post)).collect(Collectors.toList());
+        List<PostDTO> content = listOfPost.stream().map(post -> postMapper.mapToDTOWithComments(post)).collect(Collectors.toList());
 
         PostResponse postResponse = new PostResponse();
         postResponse.setContent(content);
         postResponse.setPageNo(posts.getNumber());
         postResponse.setPageSize(posts.getSize());
-        postResponse.setTotalElement(posts.getTotalElements());
-        postResponse.setTotalPages(posts.getTotalPages());
+        postResponse.setTotalElement(totalElement);
+        postResponse.setTotalPages(totalPages);
         postResponse.setLast(posts.isLast());
 
         return postResponse;
     }
 
+    @Override
+    public CursorResponse<PostDTO> getPostsAfter(String after, int pageSize, String sortBy, String sortDir) {
+        if(pageSize < 1 || pageSize > AppConstants.MAX_PAGE_SIZE){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + AppConstants.MAX_PAGE_SIZE);
+        }
+        PageCursor cursor = after == null ? null : PageCursor.decode(after);
+        if(cursor != null){
+            // a cursor always continues the listing it was created for
+            sortBy = cursor.getSortBy();
+            sortDir = cursor.getSortDir();
+        }
+        Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+
+        List<Long> ids;
+        try {
+            // fetch one extra id to know whether there is a next page, so no COUNT is needed
+            ids = postRepository.findIdsAfter(sortBy, direction, cursor == null ? null : cursor.getValue(),
+                    cursor == null ? null : cursor.getId(), pageSize + 1);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException ex){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        boolean last = ids.size() <= pageSize;
+        List<Post> posts = findAllWithComments(last ? ids : ids.subList(0, pageSize));
+
+        String nextCursor = null;
+        if(!last && !posts.isEmpty()){
+            Post lastPost = posts.get(posts.size() - 1);
+            nextCursor = new PageCursor(sortBy, direction.name(), lastPost.getId(), sortValue(lastPost, sortBy)).encode();
+        }
+        List<PostDTO> content = posts.stream().map(post -> postMapper.mapToDTOWithComments(post)).collect(Collectors.toList());
+        return new CursorResponse<>(content, pageSize, nextCursor, last);
+    }
+
+    @Override
+    public PostSummaryResponse getPostSummaries(int pageNo, int pageSize, String sortBy, String sortDir, List<String> fields) {
+        Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending()
+                : Sort.by(sortBy).descending();
+        Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
+
+        // an unknown sortBy (or field) fails in either query, it's the caller's mistake
+        Slice<PostSummaryDTO> summaries;
+        try {
+            summaries = fields == null || fields.isEmpty() ? postRepository.findSummaries(pageable)
+                    : postRepository.findSummaryFields(fields, pageable);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException | PropertyReferenceException ex){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        // totals come from the count cache so a summary page never runs a COUNT(*)
+        long totalElement = postCountCache.countAll();
+        PostSummaryResponse postSummaryResponse = new PostSummaryResponse();
+        postSummaryResponse.setContent(summaries.getContent());
+        postSummaryResponse.setPageNo(summaries.getNumber());
+        postSummaryResponse.setPageSize(summaries.getSize());
+        postSummaryResponse.setTotalElement(totalElement);
+        postSummaryResponse.setTotalPages((int) Math.ceil((double) totalElement / pageSize));
+        postSummaryResponse.setLast(summaries.isLast());
+        return postSummaryResponse;
+    }
+
+    @Override
+    public PostSearchResponse searchPosts(String query, int pageNo, int pageSize) {
+        if(pageNo < 0 || pageSize < 1){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Page number must be at least 0 and page size at least 1");
+        }
+        int limit = (pageNo + 1) * pageSize;
+        if(limit > AppConstants.MAX_SEARCH_RESULTS){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Only the first " + AppConstants.MAX_SEARCH_RESULTS + " search results can be paged through");
+        }
+        // the index only ranks post ids, title and description of this page are read in one query
+        PostSearchIndex.SearchResult result = postSearchIndex.search(query, limit);
+        List<PostSearchIndex.Hit> hits = result.getHits();
+        List<PostSearchIndex.Hit> page = hits.subList(Math.min(pageNo * pageSize, hits.size()), hits.size());
+        Map<Long, PostSummaryDTO> summaries = page.isEmpty() ? Map.of()
+                : postRepository.findSummariesByIdIn(page.stream().map(PostSearchIndex.Hit::getPostId).collect(Collectors.toList()))
+                        .stream().collect(Collectors.toMap(PostSummaryDTO::getId, Function.identity()));
+        List<PostSearchHit> content = page.stream()
+                .filter(hit -> summaries.containsKey(hit.getPostId())) // deleted after the search
+                .map(hit -> {
+                    PostSummaryDTO summary = summaries.get(hit.getPostId());
+                    return new PostSearchHit(hit.getPostId(), summary.getTitle(), summary.getDescription(),
+                            summary.getCategoryId(), hit.getScore());
+                })
+                .collect(Collectors.toList());
+
+        long totalElement = result.getTotalHits();
+        int totalPages = (int) Math.ceil((double) totalElement / pageSize);
+        return new PostSearchResponse(content, pageNo, pageSize, totalElement, totalPages, pageNo >= totalPages - 1);
+    }
+
     @Override
     public PostDTO getPostByID(long id) {
-        Post post = postRepository.findById(id).orElseThrow(()->new ResourceNotFoundException("Post", "id", id));
-        return mapToDTO(post);
+        return postDtoCache.get(id, postId -> {
+            Post post = postRepository.findById(postId).orElseThrow(()->new ResourceNotFoundException("Post", "id", postId));
+            PostDTO postDTO = postMapper.mapToDTOWithComments(post);
+            // the detail view is the only read that needs the content
+            postDTO.setContent(postContentRepository.findById(postId).map(PostContent::getContent).orElse(null));
+            return postDTO;
+        });
+    }
+
+    @Override
+    public void recordView(long id) {
+        postViewCounter.record(id);
+        trendingPosts.recordView(id);
+    }
+
+    @Override
+    public List<TrendingPost> getTrendingPosts(String window, int limit) {
+        if(limit < 1 || limit > AppConstants.MAX_PAGE_SIZE){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + AppConstants.MAX_PAGE_SIZE);
+        }
+        List<TrendingPosts.Trend> trends = trendingPosts.top(window, limit);
+        if(trends.isEmpty()){
+            return List.of();
+        }
+        // the ranking has only ids, title and description of the top posts are read in one query
+        Map<Long, PostSummaryDTO> summaries = postRepository.findSummariesByIdIn(
+                        trends.stream().map(TrendingPosts.Trend::getPostId).collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(PostSummaryDTO::getId, Function.identity()));
+        return trends.stream()
+                .filter(trend -> summaries.containsKey(trend.getPostId())) // deleted since it was read
+                .map(trend -> {
+                    PostSummaryDTO summary = summaries.get(trend.getPostId());
+                    return new TrendingPost(trend.getPostId(), summary.getTitle(), summary.getDescription(),
+                            summary.getCategoryId(), summary.getCommentCount(), trend.getScore(), trend.getError());
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public ResourceVersion getPostVersion(long id) {
+        PostDTO cached = postDtoCache.getIfPresent(id);
+        if(cached != null){
+            return new ResourceVersion(cached.getVersion(), cached.getUpdatedAt());
+        }
+        return postRepository.findVersionById(id).orElseThrow(()->new ResourceNotFoundException("Post", "id", id));
     }
 
     @Override
     public PostDTO updatePost(PostDTO postDTO, long id) {
+        return applyChanges(id, postDTO.getTitle(), postDTO.getDescription(), postDTO.getContent(), postDTO.getCategoryId());
+    }
+
+    @Override
+    public PostDTO patchPost(PostPatchDTO postPatchDTO, long id) {
+        return applyChanges(id, postPatchDTO.getTitle(), postPatchDTO.getDescription(), postPatchDTO.getContent(),
+                postPatchDTO.getCategoryId());
+    }
+
+    // PUT and PATCH: null arguments are left as they are, everything else is only written if it differs
+    private PostDTO applyChanges(long id, String title, String description, String content, Long categoryId){
         Post post = postRepository.findById(id).orElseThrow(()->new ResourceNotFoundException("Post", "id", id));
-        Category category = categoryRepository.findById(postDTO.getCategoryId())
-                        .orElseThrow(()->new ResourceNotFoundException("Category", "id", postDTO.getCategoryId()));
-        post.setTitle(postDTO.getTitle());
-        post.setContent(postDTO.getContent());
-        post.setDescription(postDTO.getDescription());
-        post.setCategory(category);
-        Post updatedPost = postRepository.save(post);
+        boolean postChanged = false;
+        boolean textChanged = false;
+        if(title != null && !title.equals(post.getTitle())){
+            post.setTitle(title);
+            postChanged = textChanged = true;
+        }
+        if(description != null && !description.equals(post.getDescription())){
+            post.setDescription(description);
+            postChanged = textChanged = true;
+        }
+        Long oldCategoryId = post.getCategory() == null ? null : post.getCategory().getId();
+        boolean categoryChanged = categoryId != null && !categoryId.equals(oldCategoryId);
+        if(categoryChanged){
+            // an existence check and a reference instead of loading the category
+            if(!categoryRepository.existsById(categoryId)){
+                throw new ResourceNotFoundException("Category", "id", categoryId);
+            }
+            post.setCategory(categoryRepository.getReferenceById(categoryId));
+            postChanged = true;
+        }
+        // the stored content isn't read to compare, a given content is always written
+        boolean contentChanged = content != null;
+        textChanged |= contentChanged;
+        if(!postChanged && !contentChanged){
+            return postMapper.mapToDTOWithComments(post); // nothing to write
+        }
 
-        return mapToDTO(updatedPost);
+        boolean savePost = postChanged;
+        transactionTemplate.executeWithoutResult(status -> {
+            if(savePost){
+                // @DynamicUpdate on Post: the UPDATE sets only the columns changed above, plus version and updated_at
+                postRepository.save(post);
+            } else {
+                postRepository.touch(id, Instant.now()); // only the content changed, the version still has to move
+            }
+            if(contentChanged && postContentRepository.updateContent(id, content) == 0){
+                postContentRepository.save(new PostContent(post, content));
+            }
+        });
+        postDtoCache.invalidate(id);
+        String currentContent = content;
+        if(textChanged){
+            if(currentContent == null){
+                currentContent = postContentRepository.findById(id).map(PostContent::getContent).orElse(null);
+            }
+            postSearchIndex.index(id, post.getTitle(), post.getDescription(), currentContent);
+        }
+        if(categoryChanged){
+            postCountCache.invalidate(oldCategoryId);
+            postCountCache.invalidate(categoryId);
+        }
+        PostDTO postResponse = postMapper.mapToDTOWithComments(post);
+        postResponse.setContent(currentContent);
+        return postResponse;
     }
 
     @Override
     public void deletePostById(long id) {
-        Post post = postRepository.findById(id).orElseThrow(()->new ResourceNotFoundException("Post", "id", id));
-        postRepository.delete(post);
+        // bulk deletes, the post and its comments are never loaded
+        postBulkDeleter.delete(id);
+        postDtoCache.invalidate(id);
+        postSearchIndex.remove(id);
+        trendingPosts.remove(id);
+        commentStreams.closePost(id);
+        postCountCache.invalidateAll(); // the post's category isn't known without loading it
     }
 
     @Override
-    public List<PostDTO> getPostByCategory(Long categoryId) {
+    public long repairCommentCounts() {
+        return commentCountRepairJob.repair();
+    }
 
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(()-> new ResourceNotFoundException("Category", "id", categoryId));
+    @Override
+    public CursorResponse<PostSummaryDTO> getPostSummariesByCategory(Long categoryId, String after, int pageSize, String sortDir,
+                                                                     String count) {
+        Sort.Direction direction = categoryPageDirection(after, sortDir);
+        List<PostSummaryDTO> rows = findCategoryPage(categoryId, after, pageSize, direction);
+        boolean last = rows.size() <= pageSize;
+        List<PostSummaryDTO> content = last ? rows : rows.subList(0, pageSize);
+        String nextCursor = last ? null : categoryCursor(direction, content.get(content.size() - 1).getId());
+        return new CursorResponse<>(content, pageSize, nextCursor, last, categoryTotal(categoryId, count));
+    }
 
-        List<Post> posts = postRepository.findByCategoryId(categoryId);
+    @Override
+    public CursorResponse<PostDTO> getPostsByCategory(Long categoryId, String after, int pageSize, String sortDir, String count) {
+        Sort.Direction direction = categoryPageDirection(after, sortDir);
+        List<PostSummaryDTO> rows = findCategoryPage(categoryId, after, pageSize, direction);
+        boolean last = rows.size() <= pageSize;
+        List<Long> ids = (last ? rows : rows.subList(0, pageSize)).stream().map(PostSummaryDTO::getId).collect(Collectors.toList());
+        List<PostDTO> content = findAllWithComments(ids).stream().map(post -> postMapper.mapToDTOWithComments(post)).collect(Collectors.toList());
+        String nextCursor = last ? null : categoryCursor(direction, ids.get(ids.size() - 1));
+        return new CursorResponse<>(content, pageSize, nextCursor, last, categoryTotal(categoryId, count));
+    }
 
-        return posts.stream().map((post) -> mapToDTO(post)).collect(Collectors.toList());
+    // the category exists at this point, findCategoryPage has checked it
+    private Long categoryTotal(Long categoryId, String count){
+        if(count.equalsIgnoreCase(AppConstants.COUNT_EXACT)){
+            return postRepository.countByCategoryId(categoryId);
+        }
+        if(count.equalsIgnoreCase(AppConstants.COUNT_CACHED)){
+            return postCountCache.countByCategory(categoryId);
+        }
+        if(count.equalsIgnoreCase(AppConstants.COUNT_NONE)){
+            return null;
+        }
+        throw new BlogAPIException(HttpStatus.BAD_REQUEST, "count must be one of exact, cached or none");
     }
 
-    private PostDTO mapToDTO(Post post){
-        PostDTO postDTO = mapper.map(post, PostDTO.class);
+    // a cursor continues in the direction it was created with
+    private Sort.Direction categoryPageDirection(String after, String sortDir){
+        if(after != null){
+            PageCursor cursor = PageCursor.decode(after);
+            if(!AppConstants.DEFAULT_SORT_BY.equals(cursor.getSortBy())){
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+            }
+            sortDir = cursor.getSortDir();
+        }
+        return sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC : Sort.Direction.DESC;
+    }
+
+    // pageSize + 1 summaries, the extra one only tells whether there is a next page
+    private List<PostSummaryDTO> findCategoryPage(Long categoryId, String after, int pageSize, Sort.Direction direction){
+        if(pageSize < 1 || pageSize > AppConstants.MAX_PAGE_SIZE){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + AppConstants.MAX_PAGE_SIZE);
+        }
+        Long lastId = after == null ? null : PageCursor.decode(after).getId();
+        return postRepository.findSummariesByCategoryAfter(categoryId, direction, lastId, pageSize + 1)
+                .orElseThrow(()-> new ResourceNotFoundException("Category", "id", categoryId));
+    }
+
+    private String categoryCursor(Sort.Direction direction, long lastId){
+        return new PageCursor(AppConstants.DEFAULT_SORT_BY, direction.name(), lastId, null).encode();
+    }
 
-       /*
-        PostDTO postDTO = new PostDTO();
-        postDTO.setId(post.getId());
-        postDTO.setTitle(post.getTitle());
-        postDTO.setDescription(post.getDescription());
-        postDTO.setContent(post.getContent());*/
-        return postDTO;
+    // loads the given posts with comments fetch-joined and returns them in the order of ids
+    private List<Post> findAllWithComments(List<Long> ids){
+        if(ids.isEmpty()){
+            return List.of();
+        }
+        Map<Long, Post> postsById = postRepository.findAllWithCommentsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        // a post deleted between the two queries is simply skipped
+        return ids.stream().map(postsById::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
-    private Post mapToEntity(PostDTO postDTO){
-        Post post = mapper.map(postDTO, Post.class);
-        /*
-        Post post = new Post();
-        post.setTitle(postDTO.getTitle());
-        post.setDescription(postDTO.getDescription());
-        post.setContent(postDTO.getContent());*/
-        return post;
+    // the value of the sort field of a post, as it is stored in a page cursor
+    private String sortValue(Post post, String sortBy){
+        Object value = PropertyAccessorFactory.forBeanPropertyAccess(post).getPropertyValue(sortBy);
+        return value == null ? null : value.toString();
     }
 }
@@ -0,0 +1,138 @@
+package com.springboot.blog.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+Space-Saving heavy hitters with forward exponential decay, tracks at most `capacity` keys however many are seen.
+
+A tracked key adds its weight to its counter. An untracked key takes over the smallest counter and inherits its
+count as its error, so a reported score overestimates the true one by at most that error, and every key whose
+decayed weight is above total / capacity is tracked. Weights are scaled by e^((t - landmark) / meanLifetime)
+when they arrive instead of decaying every counter as time passes, which keeps the order of the counters
+fixed between updates. The landmark is moved forward before the scale factor gets anywhere near overflowing.
+
+Counters are kept sorted (a TreeSet ordered by count), so an update is O(log capacity) and top(n) is O(n).
+Not thread safe, TrendingPosts synchronizes on each instance.
+ */
+class DecayingTopK {
+    // e^RESCALE_EXPONENT stays far below Double.MAX_VALUE
+    private static final double RESCALE_EXPONENT = 64;
+    private static final Comparator<Counter> BY_COUNT =
+            Comparator.comparingDouble((Counter counter) -> counter.count).thenComparingLong(counter -> counter.key);
+
+    private final int capacity;
+    private final double meanLifetimeMillis;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long landmarkMillis;
+    private double total; // decayed weight of everything recorded, relative to the landmark
+
+    DecayingTopK(int capacity, long meanLifetimeMillis, long nowMillis) {
+        this.capacity = capacity;
+        this.meanLifetimeMillis = meanLifetimeMillis;
+        this.landmarkMillis = nowMillis;
+    }
+
+    void record(long key, double weight, long nowMillis){
+        if((nowMillis - landmarkMillis) / meanLifetimeMillis > RESCALE_EXPONENT){
+            rescale(nowMillis);
+        }
+        double scaled = weight * Math.exp((nowMillis - landmarkMillis) / meanLifetimeMillis);
+        total += scaled;
+
+        Counter counter = counters.get(key);
+        if(counter != null){
+            byCount.remove(counter);
+            counter.count += scaled;
+        } else if(counters.size() < capacity){
+            counter = new Counter(key, scaled, 0);
+            counters.put(key, counter);
+        } else {
+            // replace the smallest counter, its count is an upper bound of what the new key may have had before
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            counter = new Counter(key, smallest.count + scaled, smallest.count);
+            counters.put(key, counter);
+        }
+        byCount.add(counter);
+    }
+
+    void remove(long key){
+        Counter counter = counters.remove(key);
+        if(counter != null){
+            byCount.remove(counter);
+        }
+    }
+
+    // the n highest scores as of now, decayed to the current time
+    List<Estimate> top(int n, long nowMillis){
+        double decay = Math.exp(-(nowMillis - landmarkMillis) / meanLifetimeMillis);
+        List<Estimate> top = new ArrayList<>(Math.min(n, counters.size()));
+        Iterator<Counter> highestFirst = byCount.descendingIterator();
+        while (highestFirst.hasNext() && top.size() < n){
+            Counter counter = highestFirst.next();
+            top.add(new Estimate(counter.key, counter.count * decay, counter.error * decay));
+        }
+        return top;
+    }
+
+    // upper bound of the overestimate of any reported score, as of now
+    double maxError(long nowMillis){
+        return total / capacity * Math.exp(-(nowMillis - landmarkMillis) / meanLifetimeMillis);
+    }
+
+    // moves the landmark to now, re-sorted because counters that underflow to 0 would otherwise tie out of order
+    private void rescale(long nowMillis){
+        double factor = Math.exp(-(nowMillis - landmarkMillis) / meanLifetimeMillis);
+        byCount.clear();
+        for (Counter counter : counters.values()) {
+            counter.count *= factor;
+            counter.error *= factor;
+            byCount.add(counter);
+        }
+        total *= factor;
+        landmarkMillis = nowMillis;
+    }
+
+    private static class Counter {
+        private final long key;
+        private double count;
+        private double error;
+
+        Counter(long key, double count, double error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    static class Estimate {
+        private final long key;
+        private final double score;
+        private final double error;
+
+        Estimate(long key, double score, double error) {
+            this.key = key;
+            this.score = score;
+            this.error = error;
+        }
+
+        long getKey() {
+            return key;
+        }
+
+        double getScore() {
+            return score;
+        }
+
+        double getError() {
+            return error;
+        }
+    }
+}
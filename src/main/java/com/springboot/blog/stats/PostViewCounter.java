@@ -0,0 +1,93 @@
+package com.springboot.blog.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Counts post views in memory and adds them to posts.view_count in batches, instead of one UPDATE per view.
+Each post has a LongAdder, which spreads concurrent increments over cells, so readers of a hot post don't
+contend on one counter. Every flush takes the accumulated deltas and writes them with one batched
+"view_count = view_count + ?" per chunk, every app.views.flush-interval-ms and once more on shutdown.
+
+At most app.views.max-pending posts are tracked between flushes, views of further posts are dropped and
+counted. A failed flush puts its deltas back for the next one. Entries that had no views for a whole
+interval are removed, a view that races with that removal can be lost, so counts are near exact, not exact.
+Published as posts.views.pending, posts.views.dropped and posts.views.flush.failures.
+ */
+@Component
+public class PostViewCounter {
+    private static final String ADD_VIEWS = "update posts set view_count = view_count + ? where id = ?";
+    private static final int BATCH_SIZE = 500;
+
+    private JdbcTemplate jdbcTemplate;
+    private int maxPending;
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private Counter droppedViews;
+    private Counter failedFlushes;
+
+    public PostViewCounter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                           @Value("${app.views.max-pending:100000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPending = maxPending;
+        this.droppedViews = Counter.builder("posts.views.dropped")
+                .description("Views not counted because too many posts were pending").register(meterRegistry);
+        this.failedFlushes = Counter.builder("posts.views.flush.failures")
+                .description("Flushes that failed and were retried with the next one").register(meterRegistry);
+        Gauge.builder("posts.views.pending", pending, Map::size)
+                .description("Posts with views not yet written to the database").register(meterRegistry);
+    }
+
+    public void record(long postId){
+        LongAdder views = pending.get(postId);
+        if(views == null){
+            if(pending.size() >= maxPending){
+                droppedViews.increment();
+                return;
+            }
+            views = pending.computeIfAbsent(postId, id -> new LongAdder());
+        }
+        views.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-interval-ms:5000}")
+    public synchronized void flush(){
+        List<Object[]> deltas = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long views = entry.getValue().sumThenReset();
+            if(views == 0){
+                pending.remove(entry.getKey(), entry.getValue()); // idle since the last flush
+            } else {
+                deltas.add(new Object[]{views, entry.getKey()});
+            }
+        }
+        for (int from = 0; from < deltas.size(); from += BATCH_SIZE) {
+            List<Object[]> batch = deltas.subList(from, Math.min(from + BATCH_SIZE, deltas.size()));
+            try {
+                jdbcTemplate.batchUpdate(ADD_VIEWS, batch);
+            } catch (DataAccessException ex){
+                failedFlushes.increment();
+                for (Object[] delta : batch) {
+                    pending.computeIfAbsent((Long) delta[1], id -> new LongAdder()).add((Long) delta[0]);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown(){
+        flush();
+    }
+}
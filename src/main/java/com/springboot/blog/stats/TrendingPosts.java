@@ -0,0 +1,101 @@
+package com.springboot.blog.stats;
+
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.utils.AppConstants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+Trending posts of the last hour and of the last day, fed by post reads and new comments.
+
+Each window is a DecayingTopK whose weights fade with a mean lifetime of the window's length, so "last hour"
+means recent activity weighs the most and activity older than a few hours hardly counts. Memory is
+app.trending.capacity counters per window whatever the traffic, and a larger capacity tightens the error bound
+(total weight / capacity). A comment counts app.trending.comment-weight times as much as a read.
+
+Kept in memory only, so it starts empty after a restart and each instance ranks the traffic it served.
+ */
+@Component
+public class TrendingPosts {
+    private Map<String, DecayingTopK> windows;
+    private double commentWeight;
+
+    public TrendingPosts(@Value("${app.trending.capacity:1000}") int capacity,
+                         @Value("${app.trending.comment-weight:5}") double commentWeight) {
+        long now = System.currentTimeMillis();
+        this.windows = Map.of(
+                AppConstants.TRENDING_HOUR, new DecayingTopK(capacity, Duration.ofHours(1).toMillis(), now),
+                AppConstants.TRENDING_DAY, new DecayingTopK(capacity, Duration.ofDays(1).toMillis(), now));
+        this.commentWeight = commentWeight;
+    }
+
+    public void recordView(long postId){
+        record(postId, 1);
+    }
+
+    public void recordComment(long postId){
+        record(postId, commentWeight);
+    }
+
+    public void remove(long postId){
+        for (DecayingTopK window : windows.values()) {
+            synchronized (window){
+                window.remove(postId);
+            }
+        }
+    }
+
+    public List<Trend> top(String window, int limit){
+        DecayingTopK topK = windows.get(window);
+        if(topK == null){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Window must be one of " + windows.keySet());
+        }
+        List<DecayingTopK.Estimate> estimates;
+        synchronized (topK){
+            estimates = topK.top(limit, System.currentTimeMillis());
+        }
+        return estimates.stream()
+                .map(estimate -> new Trend(estimate.getKey(), estimate.getScore(), estimate.getError()))
+                .collect(Collectors.toList());
+    }
+
+    private void record(long postId, double weight){
+        long now = System.currentTimeMillis();
+        for (DecayingTopK window : windows.values()) {
+            synchronized (window){
+                window.record(postId, weight, now);
+            }
+        }
+    }
+
+    public static class Trend {
+        private final long postId;
+        private final double score;
+        private final double error;
+
+        Trend(long postId, double score, double error) {
+            this.postId = postId;
+            this.score = score;
+            this.error = error;
+        }
+
+        public long getPostId() {
+            return postId;
+        }
+
+        // decayed reads plus weighted comments, overestimated by at most error
+        public double getScore() {
+            return score;
+        }
+
+        public double getError() {
+            return error;
+        }
+    }
+}
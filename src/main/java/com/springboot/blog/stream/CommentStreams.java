@@ -0,0 +1,231 @@
+package com.springboot.blog.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.exception.BlogAPIException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Live comment streams (Server-Sent Events), one per client and post. The emitters are async requests, so an idle
+stream holds a socket but no thread, and tens of thousands of them are only memory.
+
+Writers call publish after their transaction committed. It serializes the event once, puts it in the bounded
+buffer of every subscriber of the post and hands the subscriber to a small pool of sender threads, it never
+waits on a socket. A subscriber whose buffer is full is too slow and gets disconnected (EventSource clients
+reconnect by themselves and reload what they missed). Heartbeats every app.comments.stream.heartbeat-ms keep
+proxies from closing idle streams and find dead connections.
+Published as comments.stream.subscribers and comments.stream.slow-disconnects.
+ */
+@Component
+public class CommentStreams {
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    private static final Event HEARTBEAT = new Event(null, null, null);
+
+    private ObjectMapper objectMapper;
+    private long timeoutMillis;
+    private int bufferSize;
+    private int maxSubscribers;
+
+    private final Map<Long, Set<Subscriber>> subscribersByPost = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private ExecutorService senders;
+    private Counter slowDisconnects;
+
+    public CommentStreams(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                          @Value("${app.comments.stream.timeout-ms:1800000}") long timeoutMillis,
+                          @Value("${app.comments.stream.buffer-size:64}") int bufferSize,
+                          @Value("${app.comments.stream.max-subscribers:50000}") int maxSubscribers,
+                          @Value("${app.comments.stream.senders:4}") int senderCount) {
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderCount, runnable -> {
+            Thread thread = new Thread(runnable, "comment-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slowDisconnects = Counter.builder("comments.stream.slow-disconnects")
+                .description("Streams closed because the client didn't keep up").register(meterRegistry);
+        Gauge.builder("comments.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open live comment streams").register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(long postId){
+        if(subscriberCount.incrementAndGet() > maxSubscribers){
+            subscriberCount.decrementAndGet();
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open comment streams, try again later");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(postId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        // compute locks the post's entry, so a subscriber can't be added to a set that is being dropped
+        subscribersByPost.compute(postId, (id, subscribers) -> {
+            Set<Subscriber> set = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+            set.add(subscriber);
+            return set;
+        });
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(ex -> unregister(subscriber));
+        return emitter;
+    }
+
+    // data is serialized once for all subscribers of the post, then sent as the event named name
+    public void publish(long postId, String name, long commentId, Object data){
+        Set<Subscriber> subscribers = subscribersByPost.get(postId);
+        if(subscribers == null){
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException ex){
+            throw new IllegalStateException("Comment event can't be serialized", ex);
+        }
+        Event event = new Event(name, String.valueOf(commentId), json);
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, event);
+        }
+    }
+
+    // the post is gone, so are its streams
+    public void closePost(long postId){
+        Set<Subscriber> subscribers = subscribersByPost.get(postId);
+        if(subscribers != null){
+            subscribers.forEach(this::close);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.comments.stream.heartbeat-ms:15000}")
+    public void heartbeat(){
+        for (Set<Subscriber> subscribers : subscribersByPost.values()) {
+            for (Subscriber subscriber : subscribers) {
+                offer(subscriber, HEARTBEAT);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        subscribersByPost.values().forEach(subscribers -> subscribers.forEach(this::close));
+        senders.shutdown();
+    }
+
+    private void offer(Subscriber subscriber, Event event){
+        if(!subscriber.buffer.offer(event)){
+            slowDisconnects.increment();
+            close(subscriber);
+            return;
+        }
+        schedule(subscriber);
+    }
+
+    // the emitter itself is completed by the sender, a writer must not wait for a send that is stuck
+    private void close(Subscriber subscriber){
+        unregister(subscriber);
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber){
+        if(subscriber.scheduled.compareAndSet(false, true)){
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber){
+        try {
+            Event event;
+            while (!subscriber.closed.get() && (event = subscriber.buffer.poll()) != null) {
+                subscriber.emitter.send(event.toSse());
+            }
+        } catch (IOException | IllegalStateException ex){
+            unregister(subscriber); // the client went away or the request is already completed
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        if(subscriber.closed.get()){
+            subscriber.buffer.clear();
+            complete(subscriber);
+        } else if(!subscriber.buffer.isEmpty()){
+            schedule(subscriber); // offered after the last poll but before scheduled was reset
+        }
+    }
+
+    private void complete(Subscriber subscriber){
+        if(subscriber.completed.compareAndSet(false, true)){
+            try {
+                subscriber.emitter.complete();
+            } catch (IllegalStateException ex){
+                // the async request already ended
+            }
+        }
+    }
+
+    private void unregister(Subscriber subscriber){
+        if(!subscriber.closed.compareAndSet(false, true)){
+            return;
+        }
+        subscribersByPost.computeIfPresent(subscriber.postId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    private static class Subscriber {
+        private final long postId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> buffer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        Subscriber(long postId, SseEmitter emitter, BlockingQueue<Event> buffer) {
+            this.postId = postId;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class Event {
+        private final String name;
+        private final String id;
+        private final String json;
+
+        Event(String name, String id, String json) {
+            this.name = name;
+            this.id = id;
+            this.json = json;
+        }
+
+        SseEmitter.SseEventBuilder toSse(){
+            if(this == HEARTBEAT){
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().name(name).id(id).data(json, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -5,5 +5,31 @@ public class AppConstants {
     public static final String DEFAULT_PAGE_SIZE = "10";
     public static final String DEFAULT_SORT_BY ="id";
     public static final String DEFAULT_SORT_DIR = "asc";
+    public static final int MAX_PAGE_SIZE = 100; // for the keyset listings that have no other bound
+    public static final String DEFAULT_COMMENT_PAGE_SIZE = "20"; // the maximum is app.comments.max-page-size
+
+    // how getAllPosts fills in the totals of a page
+    public static final String COUNT_EXACT = "exact"; // COUNT(*) on every request
+    public static final String COUNT_CACHED = "cached"; // periodically refreshed total
+    public static final String COUNT_NONE = "none"; // no totals, only whether this is the last page
+    public static final String DEFAULT_COUNT = COUNT_EXACT;
+
+    // search results are ranked in memory, paging stops after this many hits
+    public static final int MAX_SEARCH_RESULTS = 1000;
+
+    // a bulk import reports at most this many failed lines in detail
+    public static final int MAX_IMPORT_ERRORS = 100;
+
+    // rows per round trip of the export cursor, also the number of posts whose comments are loaded together
+    public static final int EXPORT_FETCH_SIZE = 500;
+
+    // views of /api/posts/category/{id}
+    public static final String VIEW_SUMMARY = "summary"; // PostSummaryDTO, no content and comments
+    public static final String VIEW_FULL = "full"; // PostDTO with comments
+
+    // windows of /api/posts/trending
+    public static final String TRENDING_HOUR = "hour";
+    public static final String TRENDING_DAY = "day";
+    public static final String DEFAULT_TRENDING_WINDOW = TRENDING_HOUR;
 
 }
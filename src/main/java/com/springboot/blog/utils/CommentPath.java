@@ -0,0 +1,35 @@
+package com.springboot.blog.utils;
+
+/*
+Materialized path of a reply thread: the ids of a comment's ancestors and of the comment itself, each written
+as SEGMENT_LENGTH base 36 digits padded with zeros. Because every segment has the same width, sorting by path
+lists a post's comments depth first (each reply right after its parent, siblings in id order) and the subtree
+of a comment is every path that starts with its path, one range of the (post_id, path) index.
+ */
+public class CommentPath {
+    public static final int SEGMENT_LENGTH = 8; // 36^8 ids, about 2.8 trillion
+    public static final int MAX_LENGTH = 255;
+    public static final int MAX_DEPTH = MAX_LENGTH / SEGMENT_LENGTH - 1; // depth of a top-level comment is 0
+
+    public static String segment(long id){
+        String digits = Long.toString(id, 36);
+        if(digits.length() > SEGMENT_LENGTH){
+            throw new IllegalArgumentException("Comment id " + id + " does not fit a path segment");
+        }
+        return "0".repeat(SEGMENT_LENGTH - digits.length()) + digits;
+    }
+
+    // path of comment id under parentPath, null parentPath for a top-level comment
+    public static String child(String parentPath, long id){
+        return parentPath == null ? segment(id) : parentPath + segment(id);
+    }
+
+    public static int depth(String path){
+        return path.length() / SEGMENT_LENGTH - 1;
+    }
+
+    // LIKE pattern for the comment and all its replies, path only has digits and letters so nothing needs escaping
+    public static String subtreePattern(String path){
+        return path + "%";
+    }
+}
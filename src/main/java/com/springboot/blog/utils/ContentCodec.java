@@ -0,0 +1,119 @@
+package com.springboot.blog.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+Compresses post content for storage. The stored form is one format byte followed by
+  RAW:     the UTF-8 bytes, for texts too short or too random for deflate to pay off
+  DEFLATE: the UTF-8 length as a varint, then raw deflate primed with DICTIONARY
+The preset dictionary holds words and markup that blog posts share, which is what makes short posts (a few
+hundred bytes, where deflate alone has nothing to back-reference yet) compress as well.
+DICTIONARY must never change once rows are written with it, a new one needs a new format byte.
+ */
+public final class ContentCodec {
+    private static final byte RAW = 0;
+    private static final byte DEFLATE = 1;
+    private static final int MIN_COMPRESS_LENGTH = 64;
+
+    // most frequent strings last: deflate reaches back at most 32KB and shorter distances are cheaper
+    private static final byte[] DICTIONARY = (
+            "<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title></title></head><body></body></html>" +
+            "<table><thead><tr><th></th></tr></thead><tbody><tr><td></td></tr></tbody></table>" +
+            "<blockquote></blockquote><pre><code class=\"language-java\"></code></pre><img src=\"https://\" alt=\"\" />" +
+            "<ul><li></li></ul><ol><li></li></ol><h1></h1><h2></h2><h3></h3><strong></strong><em></em>" +
+            "<a href=\"https://www.\">.com</a><br /><p></p>" +
+            "public static void main(String[] args) { System.out.println(\"\"); } return null; import java.util.List; " +
+            "```java\n```bash\n```json\n```\n| --- | --- |\n![image](https://)\n[link](https://)\n" +
+            "- [ ] **Note:** > \n### \n## \n# \n1. 2. 3. \n\n" +
+            "In this article, we will learn how to. In this tutorial, we are going to. Let's take a look at the following example. " +
+            "For example, you can use the following command to. As you can see, the output is. " +
+            "Spring Boot application REST API database server client request response configuration " +
+            "performance example function method class interface object string number value values " +
+            "however, therefore, because, although, without, between, through, should, would, could, about, " +
+            "which, their, there, these, those, other, after, before, first, because, using, into, more, when, " +
+            "what, will, your, have, that, this, with, from, they, been, were, also, than, then, them, some, only, " +
+            "the following. It is important to note that. This means that. If you want to. You can also. " +
+            "of the the to and in is it that for on with as are be by this can you or not an at from have will " +
+            ". The , and , the . It . This . In . You ,  the  of  to  and  a  in  is  that  for "
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private ContentCodec() {
+    }
+
+    public static byte[] compress(String text){
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if(utf8.length >= MIN_COMPRESS_LENGTH){
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setDictionary(DICTIONARY);
+                deflater.setInput(utf8);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 2 + 16);
+                out.write(DEFLATE);
+                writeVarint(out, utf8.length);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                if(out.size() < utf8.length + 1){
+                    return out.toByteArray();
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        byte[] stored = new byte[utf8.length + 1];
+        stored[0] = RAW;
+        System.arraycopy(utf8, 0, stored, 1, utf8.length);
+        return stored;
+    }
+
+    public static String decompress(byte[] stored){
+        if(stored[0] == RAW){
+            return new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+        }
+        if(stored[0] != DEFLATE){
+            throw new IllegalArgumentException("Unknown content format " + stored[0]);
+        }
+        int length = 0;
+        int position = 1;
+        for (int shift = 0; ; shift += 7) {
+            byte b = stored[position++];
+            length |= (b & 0x7f) << shift;
+            if(b >= 0){
+                break;
+            }
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(DICTIONARY);
+            inflater.setInput(stored, position, stored.length - position);
+            byte[] utf8 = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = inflater.inflate(utf8, read, length - read);
+                if(n == 0 && (inflater.finished() || inflater.needsInput())){
+                    throw new IllegalArgumentException("Truncated content");
+                }
+                read += n;
+            }
+            return new String(utf8, StandardCharsets.UTF_8);
+        } catch (DataFormatException ex){
+            throw new IllegalArgumentException("Corrupt content", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value){
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,43 @@
+package com.springboot.blog.utils;
+
+import com.springboot.blog.exception.BlogAPIException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+Position in a keyset listing: the sort field and direction, the id of the last row and that row's
+sort key value. Clients only see it as an opaque url-safe token.
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+    private static final String SEPARATOR = ":";
+
+    private String sortBy;
+    private String sortDir;
+    private long id;
+    private String value; // null when the last row had no value for the sort field
+
+    public String encode(){
+        // the value goes last because it is the only part that may contain the separator
+        String raw = sortBy + SEPARATOR + sortDir + SEPARATOR + id + (value == null ? "" : SEPARATOR + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token){
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if(parts.length < 3){
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+            }
+            return new PageCursor(parts[0], parts[1], Long.parseLong(parts[2]), parts.length == 4 ? parts[3] : null);
+        } catch (IllegalArgumentException ex){ // bad base64 or id, NumberFormatException is an IllegalArgumentException
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// the repository answers invalidate while it counts, as a create or delete committing in the middle of a COUNT would
+class PostCountCacheTest {
+
+    private PostRepository postRepository = mock(PostRepository.class);
+    private PostCountCache cache = new PostCountCache(postRepository, 60);
+
+    @Test
+    void countAllCachesTheTotal(){
+        when(postRepository.count()).thenReturn(5L);
+
+        cache.countAll();
+        assertEquals(5, cache.countAll());
+
+        verify(postRepository, times(1)).count();
+    }
+
+    @Test
+    void countAllDropsATotalInvalidatedMeanwhile(){
+        when(postRepository.count()).thenAnswer(invocation -> {
+            cache.invalidate(1L);
+            return 5L;
+        }).thenReturn(6L);
+
+        assertEquals(5, cache.countAll());
+        assertEquals(6, cache.countAll());
+        assertEquals(6, cache.countAll());
+
+        verify(postRepository, times(2)).count();
+    }
+
+    @Test
+    void countByCategoryKeepsACountWhileOtherCategoriesAreInvalidated(){
+        when(postRepository.countByCategoryId(1L)).thenAnswer(invocation -> {
+            cache.invalidate(2L);
+            return 3L;
+        });
+
+        cache.countByCategory(1L);
+        assertEquals(3, cache.countByCategory(1L));
+
+        verify(postRepository, times(1)).countByCategoryId(1L);
+    }
+
+    @Test
+    void countByCategoryDropsACountInvalidatedMeanwhile(){
+        when(postRepository.countByCategoryId(1L)).thenAnswer(invocation -> {
+            cache.invalidate(1L);
+            return 3L;
+        }).thenAnswer(invocation -> {
+            cache.invalidateAll();
+            return 4L;
+        }).thenReturn(5L);
+
+        assertEquals(3, cache.countByCategory(1L));
+        assertEquals(4, cache.countByCategory(1L));
+        assertEquals(5, cache.countByCategory(1L));
+        assertEquals(5, cache.countByCategory(1L));
+
+        verify(postRepository, times(3)).countByCategoryId(1L);
+    }
+}
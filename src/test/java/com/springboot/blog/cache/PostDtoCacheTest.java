@@ -0,0 +1,61 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.payload.PostDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// the loaders invalidate while they run, as a write committing in the middle of a load would
+class PostDtoCacheTest {
+
+    private PostDtoCache cache = new PostDtoCache(new SimpleMeterRegistry(), 100, 300);
+
+    @Test
+    void getCachesTheLoadedPost(){
+        cache.get(1, PostDtoCacheTest::post);
+
+        assertNotNull(cache.getIfPresent(1));
+    }
+
+    @Test
+    void getKeepsALoadWhileOtherPostsAreInvalidated(){
+        cache.get(1, id -> {
+            cache.invalidate(2);
+            return post(id);
+        });
+
+        assertNotNull(cache.getIfPresent(1));
+    }
+
+    @Test
+    void getDropsALoadOfAPostInvalidatedMeanwhile(){
+        cache.get(1, id -> {
+            cache.invalidate(1);
+            return post(id);
+        });
+
+        assertNull(cache.getIfPresent(1));
+        // the next load is cached again
+        cache.get(1, PostDtoCacheTest::post);
+        assertNotNull(cache.getIfPresent(1));
+    }
+
+    @Test
+    void getDropsALoadRunningDuringInvalidateAll(){
+        cache.get(1, id -> {
+            cache.invalidateAll();
+            return post(id);
+        });
+
+        assertNull(cache.getIfPresent(1));
+    }
+
+    private static PostDTO post(long id){
+        PostDTO post = new PostDTO();
+        post.setId(id);
+        post.setTitle("Post " + id);
+        return post;
+    }
+}
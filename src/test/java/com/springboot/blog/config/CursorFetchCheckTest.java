@@ -0,0 +1,19 @@
+package com.springboot.blog.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CursorFetchCheckTest {
+
+    @Test
+    void usesCursorFetchReadsTheUrlParameters(){
+        assertTrue(CursorFetchCheck.usesCursorFetch("jdbc:mysql://localhost:3306/blog?useCursorFetch=true"));
+        assertTrue(CursorFetchCheck.usesCursorFetch("jdbc:mysql://localhost:3306/blog?useSSL=false&useCursorFetch=TRUE"));
+        assertFalse(CursorFetchCheck.usesCursorFetch("jdbc:mysql://localhost:3306/blog"));
+        assertFalse(CursorFetchCheck.usesCursorFetch("jdbc:mysql://localhost:3306/blog?useCursorFetch=false"));
+        assertFalse(CursorFetchCheck.usesCursorFetch("jdbc:mysql://localhost:3306/blog?notuseCursorFetch=true"));
+        assertFalse(CursorFetchCheck.usesCursorFetch(null));
+    }
+}
@@ -0,0 +1,140 @@
+package com.springboot.blog.job;
+
+import com.springboot.blog.cache.PostDtoCache;
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostJdbcWriter;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.stream.CommentStreams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+// not @Transactional: the writers commit on their own threads, so the test cleans up after itself
+@SpringBootTest
+@AutoConfigureTestDatabase
+class CommentWriteBehindTest {
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @SpyBean
+    private PostJdbcWriter postJdbcWriter;
+    @Autowired
+    private PostDtoCache postDtoCache;
+    @Autowired
+    private CommentStreams commentStreams;
+    @Autowired
+    private CommentMapper commentMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp(){
+        commentRepository.deleteAll();
+        postRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    // a drain timeout of 0 always runs out, so the shutdown thread has to write what the writer didn't get to
+    @Test
+    void shutdownWritesQueuedCommentsWhenWritersTimeOut() throws InterruptedException {
+        Post post = savePost();
+        CommentWriteBehind writeBehind = new CommentWriteBehind(postRepository, postJdbcWriter, postDtoCache,
+                commentStreams, commentMapper, transactionManager, new SimpleMeterRegistry(),
+                true, 1000, 1, 5, 0, 3, 1);
+        for (int i = 0; i < 300; i++) {
+            writeBehind.enqueue(post.getId(), comment(i));
+        }
+
+        writeBehind.shutdown();
+
+        // the writer may still be committing the batch it had taken
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (commentRepository.count() < 300 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(300, commentRepository.count());
+        assertEquals(300, postRepository.findById(post.getId()).orElseThrow().getCommentCount());
+    }
+
+    @Test
+    void writeRetriesABatchThatFailsOnce() throws InterruptedException {
+        Post post = savePost();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CommentWriteBehind writeBehind = writeBehind(meterRegistry);
+        doThrow(new TransientDataAccessResourceException("connection reset")).doCallRealMethod()
+                .when(postJdbcWriter).insertComments(anyList(), any());
+
+        writeBehind.enqueue(post.getId(), comment(1));
+        writeBehind.shutdown();
+
+        assertEquals(1, commentRepository.count());
+        assertEquals(0, meterRegistry.counter("comments.write-behind.failed").count());
+    }
+
+    // the long name fails on its own, the batch is split and only that comment is lost
+    @Test
+    void writeLosesOnlyTheCommentThatFailsOnItsOwn() throws InterruptedException {
+        Post post = savePost();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CommentWriteBehind writeBehind = writeBehind(meterRegistry);
+        CommentDTO bad = comment(0);
+        bad.setName("x".repeat(300));
+
+        writeBehind.enqueue(post.getId(), bad);
+        for (int i = 1; i <= 4; i++) {
+            writeBehind.enqueue(post.getId(), comment(i));
+        }
+        writeBehind.shutdown();
+
+        assertEquals(4, commentRepository.count());
+        assertEquals(4, postRepository.findById(post.getId()).orElseThrow().getCommentCount());
+        assertEquals(1, meterRegistry.counter("comments.write-behind.failed").count());
+    }
+
+    // one writer, and a drain timeout long enough for it to finish
+    private CommentWriteBehind writeBehind(SimpleMeterRegistry meterRegistry){
+        return new CommentWriteBehind(postRepository, postJdbcWriter, postDtoCache, commentStreams, commentMapper,
+                transactionManager, meterRegistry, true, 1000, 1, 10, 10, 1, 1);
+    }
+
+    private Post savePost(){
+        Category category = new Category();
+        category.setName("Write-behind");
+        category.setDescription("Posts for the write-behind test");
+        categoryRepository.save(category);
+
+        Post post = new Post();
+        post.setTitle("Write-behind post");
+        post.setDescription("A post that gets many comments");
+        post.setCategory(category);
+        return postRepository.save(post);
+    }
+
+    private CommentDTO comment(int i){
+        CommentDTO comment = new CommentDTO();
+        comment.setName("reader" + i);
+        comment.setEmail("reader" + i + "@gmail.com");
+        comment.setBody("Queued comment number " + i);
+        return comment;
+    }
+}
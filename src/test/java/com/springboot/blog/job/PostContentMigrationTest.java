@@ -0,0 +1,106 @@
+package com.springboot.blog.job;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.utils.ContentCodec;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// not @Transactional: the ALTER TABLEs commit on their own, so every test puts the schema back itself
+@SpringBootTest
+@AutoConfigureTestDatabase
+class PostContentMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private long categoryId;
+
+    @BeforeEach
+    void addOldContentColumn(){
+        Category category = new Category();
+        category.setName("Migration");
+        category.setDescription("Posts written before post_contents");
+        categoryId = categoryRepository.save(category).getId();
+        jdbcTemplate.execute("alter table posts add column content varchar(1000)");
+    }
+
+    @AfterEach
+    void cleanUp(){
+        if(hasContentColumn()){
+            jdbcTemplate.execute("alter table posts drop column content");
+        }
+        jdbcTemplate.update("delete from post_contents");
+        jdbcTemplate.update("delete from posts");
+        jdbcTemplate.update("delete from categories");
+    }
+
+    @Test
+    void migrateCopiesContentAndKeepsColumnByDefault(){
+        long first = insertOldPost("Old post one", "The body of the first post, written before post_contents existed");
+        long second = insertOldPost("Old post two", "The second body");
+
+        new PostContentMigration(jdbcTemplate, entityManagerFactory, false).migrate();
+
+        assertEquals("The body of the first post, written before post_contents existed", storedContent(first));
+        assertEquals("The second body", storedContent(second));
+        assertEquals(true, hasContentColumn());
+    }
+
+    @Test
+    void migrateDropsColumnWhenEnabledAndEveryPostIsCopied(){
+        long post = insertOldPost("Old post", "Old body");
+
+        new PostContentMigration(jdbcTemplate, entityManagerFactory, true).migrate();
+
+        assertEquals("Old body", storedContent(post));
+        assertEquals(false, hasContentColumn());
+    }
+
+    @Test
+    void migrateOnlyCopiesPostsWithoutContentRow(){
+        long post = insertOldPost("Old post", "Old body");
+        PostContentMigration migration = new PostContentMigration(jdbcTemplate, entityManagerFactory, false);
+        migration.migrate();
+        jdbcTemplate.update("update post_contents set content = ? where post_id = ?", ContentCodec.compress("Edited body"), post);
+
+        migration.migrate();
+
+        assertEquals("Edited body", storedContent(post));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from post_contents", Integer.class));
+    }
+
+    private long insertOldPost(String title, String content){
+        jdbcTemplate.update("insert into posts (title, description, category_id, comment_count, view_count, version, " +
+                "updated_at, content) values (?, ?, ?, 0, 0, 0, ?, ?)", title, title, categoryId, LocalDateTime.now(), content);
+        return jdbcTemplate.queryForObject("select id from posts where title = ?", Long.class, title);
+    }
+
+    private String storedContent(long postId){
+        List<byte[]> stored = jdbcTemplate.query("select content from post_contents where post_id = ?",
+                (resultSet, rowNumber) -> resultSet.getBytes(1), postId);
+        assertEquals(1, stored.size());
+        return ContentCodec.decompress(stored.get(0));
+    }
+
+    private boolean hasContentColumn(){
+        Integer columns = jdbcTemplate.queryForObject("select count(*) from information_schema.columns " +
+                "where table_name = 'POSTS' and column_name = 'CONTENT'", Integer.class);
+        return columns != null && columns > 0;
+    }
+}
@@ -0,0 +1,130 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Post;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// keyset pagination (findIdsAfter): walking every page must give the same order as one ORDER BY (key, id)
+@DataJpaTest
+class PostRepositoryTest {
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private List<Post> posts = new ArrayList<>();
+
+    // comment counts with many ties, and last comment times with NULLs and ties
+    @BeforeEach
+    void setUp(){
+        Category category = new Category();
+        category.setName("Keyset");
+        category.setDescription("Posts for the keyset tests");
+        categoryRepository.save(category);
+
+        long[] commentCounts = {2, 1, 2, 0, 1, 2, 0, 2, 1};
+        Instant[] lastCommentAts = {NOW, null, NOW.minusSeconds(60), null, NOW, null, NOW.minusSeconds(60), NOW, null};
+        for (int i = 0; i < commentCounts.length; i++) {
+            Post post = new Post();
+            post.setTitle("Keyset post " + i);
+            post.setDescription("Description " + i);
+            post.setCategory(category);
+            post.setCommentCount(commentCounts[i]);
+            post.setLastCommentAt(lastCommentAts[i]);
+            posts.add(postRepository.save(post));
+        }
+        postRepository.flush();
+    }
+
+    @Test
+    void findIdsAfterPagesById(){
+        Comparator<Post> byId = Comparator.comparing(Post::getId);
+        assertEquals(sortedIds(byId), walk("id", Sort.Direction.ASC, 2, post -> null));
+        assertEquals(sortedIds(byId.reversed()), walk("id", Sort.Direction.DESC, 2, post -> null));
+    }
+
+    @Test
+    void findIdsAfterBreaksTiesById(){
+        Function<Post, String> value = post -> String.valueOf(post.getCommentCount());
+        Comparator<Post> ascending = Comparator.comparing(Post::getCommentCount).thenComparing(Post::getId);
+        Comparator<Post> descending = Comparator.comparing(Post::getCommentCount).reversed()
+                .thenComparing(Comparator.comparing(Post::getId).reversed());
+
+        for (int pageSize = 1; pageSize <= 4; pageSize++) {
+            assertEquals(sortedIds(ascending), walk("commentCount", Sort.Direction.ASC, pageSize, value));
+            assertEquals(sortedIds(descending), walk("commentCount", Sort.Direction.DESC, pageSize, value));
+        }
+    }
+
+    // NULLs come first ascending and last descending, and are themselves ordered by id
+    @Test
+    void findIdsAfterPagesOverNullSortValues(){
+        Function<Post, String> value = post -> post.getLastCommentAt() == null ? null : post.getLastCommentAt().toString();
+        Comparator<Post> ascending = Comparator.comparing(Post::getLastCommentAt, Comparator.nullsFirst(Comparator.<Instant>naturalOrder()))
+                .thenComparing(Post::getId);
+        Comparator<Post> descending = Comparator.comparing(Post::getLastCommentAt, Comparator.nullsLast(Comparator.<Instant>reverseOrder()))
+                .thenComparing(Comparator.comparing(Post::getId).reversed());
+
+        for (int pageSize = 1; pageSize <= 4; pageSize++) {
+            assertEquals(sortedIds(ascending), walk("lastCommentAt", Sort.Direction.ASC, pageSize, value));
+            assertEquals(sortedIds(descending), walk("lastCommentAt", Sort.Direction.DESC, pageSize, value));
+        }
+    }
+
+    // what a hand-edited cursor can put into the query. The repository proxy translates the IllegalArgumentException
+    @Test
+    void findIdsAfterRejectsTamperedCursorValues(){
+        long lastId = posts.get(0).getId();
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> postRepository.findIdsAfter("password", Sort.Direction.ASC, "1", lastId, 10));
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> postRepository.findIdsAfter("category", Sort.Direction.ASC, "1", lastId, 10));
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> postRepository.findIdsAfter("commentCount", Sort.Direction.ASC, "1 or 1=1", lastId, 10));
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> postRepository.findIdsAfter("lastCommentAt", Sort.Direction.DESC, "yesterday", lastId, 10));
+    }
+
+    // pages through all posts the way getPostsAfter does, continuing from the last row of each page
+    private List<Long> walk(String sortBy, Sort.Direction direction, int pageSize, Function<Post, String> sortValue){
+        Map<Long, Post> postsById = posts.stream().collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Long> walked = new ArrayList<>();
+        Map<String, Object> cursor = new HashMap<>();
+        while (true) {
+            List<Long> ids = postRepository.findIdsAfter(sortBy, direction, (String) cursor.get("value"),
+                    (Long) cursor.get("id"), pageSize + 1);
+            boolean last = ids.size() <= pageSize;
+            List<Long> page = last ? ids : ids.subList(0, pageSize);
+            walked.addAll(page);
+            if(last){
+                return walked;
+            }
+            Post lastPost = postsById.get(page.get(page.size() - 1));
+            cursor.put("id", lastPost.getId());
+            cursor.put("value", sortValue.apply(lastPost));
+        }
+    }
+
+    private List<Long> sortedIds(Comparator<Post> order){
+        return posts.stream().sorted(order).map(Post::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,86 @@
+package com.springboot.blog.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+Search latency of PostSearchIndex on a generated corpus: posts of a 10 word title, a 30 word description and
+200 words of content, drawn from a 20,000 word vocabulary with a skewed (Zipf-like) frequency, so common
+terms have long postings lists as in real text. Each operation is one two-term query, cycling through 256 of them.
+The setup prints the heap in use once the index is built, after a full GC.
+Last run (JDK 17, 1 fork, 5x1s, -Xmx4g): 10,000 posts 66 us/op and 29 MB, 50,000 posts 237 us/op and 115 MB,
+1,000,000 posts 5.9 ms/op and 2.2 GB.
+Not a unit test, run it with:
+    mvn test-compile exec:java -Dexec.mainClass=com.springboot.blog.search.PostSearchIndexBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PostSearchIndexBenchmark {
+    private static final int VOCABULARY = 20_000;
+
+    @Param({"10000", "50000", "1000000"})
+    private int posts;
+
+    private PostSearchIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp(){
+        Random random = new Random(42);
+        index = new PostSearchIndex();
+        for (long postId = 1; postId <= posts; postId++) {
+            index.index(postId, words(random, 10), words(random, 30), words(random, 200));
+        }
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        System.out.printf("%n%d posts indexed, %d MB heap in use%n", posts,
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+        queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = words(random, 2);
+        }
+    }
+
+    @Benchmark
+    public PostSearchIndex.SearchResult search(){
+        String query = queries[next++ & (queries.length - 1)];
+        return index.search(query, 10);
+    }
+
+    private static String words(Random random, int count){
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            double r = random.nextDouble();
+            text.append('w').append((int) (VOCABULARY * r * r * r)).append(' ');
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PostSearchIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,159 @@
+package com.springboot.blog.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostSearchIndexTest {
+
+    private PostSearchIndex index = new PostSearchIndex();
+
+    @Test
+    void tokenizeLowerCasesAndDropsStopWordsAndLongTerms(){
+        assertEquals(List.of("spring", "boot", "3", "rest", "api"),
+                PostSearchIndex.tokenize("Spring-Boot 3: the REST API!"));
+        assertEquals(List.of("short"), PostSearchIndex.tokenize("short " + "x".repeat(41)));
+        assertEquals(List.of(), PostSearchIndex.tokenize(null));
+    }
+
+    @Test
+    void searchRanksTitleOverDescriptionOverContent(){
+        index.index(1, "Unrelated", "Unrelated", "Caching");
+        index.index(2, "Caching", "Unrelated", "Unrelated");
+        index.index(3, "Unrelated", "Caching", "Unrelated");
+
+        assertEquals(List.of(2L, 3L, 1L), postIds(index.search("caching", 10)));
+    }
+
+    @Test
+    void searchRanksRareTermsAndRepeatedTermsHigher(){
+        index.index(1, "Java streams", "", "");
+        index.index(2, "Java records", "", "");
+        index.index(3, "Java generics", "", "");
+        index.index(4, "Java java java", "", "");
+
+        // records occurs in one post, java in all of them
+        assertEquals(2L, postIds(index.search("java records", 10)).get(0));
+        // the same field length, but more occurrences of the term
+        assertEquals(4L, postIds(index.search("java", 10)).get(0));
+    }
+
+    @Test
+    void searchKeepsBestHitsAndCountsAllMatches(){
+        for (long postId = 1; postId <= 20; postId++) {
+            index.index(postId, "Keyset pagination part " + postId, "", postId == 7 ? "keyset keyset keyset" : "");
+        }
+
+        PostSearchIndex.SearchResult result = index.search("keyset", 3);
+
+        assertEquals(3, result.getHits().size());
+        assertEquals(20, result.getTotalHits());
+        assertEquals(7L, result.getHits().get(0).getPostId());
+        List<PostSearchIndex.Hit> hits = result.getHits();
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+        }
+    }
+
+    @Test
+    void indexReplacesThePreviousVersionOfAPost(){
+        index.index(1, "Old title about caching", "", "");
+
+        index.index(1, "New title about pagination", "", "");
+
+        assertEquals(List.of(), postIds(index.search("caching", 10)));
+        assertEquals(List.of(1L), postIds(index.search("pagination", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removeDropsThePostFromResults(){
+        index.index(1, "Caching with Caffeine", "", "");
+        index.index(2, "Caching with Redis", "", "");
+
+        index.remove(1);
+
+        assertEquals(List.of(2L), postIds(index.search("caching", 10)));
+        assertEquals(1, index.search("caching", 10).getTotalHits());
+        assertEquals(1, index.size());
+    }
+
+    // removing 1500 of 2000 documents goes past a quarter deleted, which compacts the postings
+    @Test
+    void searchStaysCorrectAcrossCompaction(){
+        for (long postId = 0; postId < 2000; postId++) {
+            index.index(postId, "Post " + postId, postId % 2 == 0 ? "even" : "odd", "");
+        }
+        for (long postId = 0; postId < 1500; postId++) {
+            index.remove(postId);
+        }
+
+        assertEquals(500, index.size());
+        assertEquals(250, index.search("even", 1000).getTotalHits());
+        assertEquals(List.of(1999L), postIds(index.search("1999", 10)));
+        assertEquals(List.of(), postIds(index.search("10", 10)));
+
+        index.index(10, "Post 10 is back", "even", "");
+        assertEquals(List.of(10L), postIds(index.search("10", 10)));
+        assertEquals(251, index.search("even", 1000).getTotalHits());
+    }
+
+    @Test
+    void rebuildDoesNotOverwritePostsChangedWhileItRuns(){
+        index.index(1, "Stale", "", "");
+        index.index(2, "Stale", "", "");
+
+        index.startRebuild();
+        index.index(1, "Edited while rebuilding", "", "");
+        index.remove(2);
+        // the rebuild read these rows before the edit and the delete
+        index.rebuild(1, "Stale", "", "");
+        index.rebuild(2, "Stale", "", "");
+        index.rebuild(3, "Untouched", "", "");
+        index.finishRebuild();
+
+        assertEquals(List.of(), postIds(index.search("stale", 10)));
+        assertEquals(List.of(1L), postIds(index.search("edited", 10)));
+        assertEquals(List.of(3L), postIds(index.search("untouched", 10)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void searchesSeeAConsistentIndexWhileItIsWritten() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (long postId = 0; postId < 5000; postId++) {
+                    index.index(postId, "Concurrent post", "", "");
+                    if(postId % 3 == 0){
+                        index.remove(postId);
+                    }
+                }
+            });
+            Future<?> reader = executor.submit(() -> {
+                while (!writer.isDone()) {
+                    PostSearchIndex.SearchResult result = index.search("concurrent post", 10);
+                    assertTrue(result.getHits().size() <= Math.min(10, result.getTotalHits()));
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(5000 - 1667, index.size());
+        assertEquals(5000 - 1667, index.search("concurrent", 10).getTotalHits());
+    }
+
+    private static List<Long> postIds(PostSearchIndex.SearchResult result){
+        return result.getHits().stream().map(PostSearchIndex.Hit::getPostId).collect(Collectors.toList());
+    }
+}
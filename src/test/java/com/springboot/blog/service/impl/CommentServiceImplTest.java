@@ -0,0 +1,205 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.BatchCommentDTO;
+import com.springboot.blog.payload.CommentDTO;
+import com.springboot.blog.payload.CommentPatchDTO;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.utils.CommentPath;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = "app.comments.batch-chunk-size=3")
+@AutoConfigureTestDatabase
+@Transactional
+class CommentServiceImplTest {
+
+    @Autowired
+    private CommentService commentService;
+    @SpyBean
+    private PostRepository postRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // goes through PostJdbcWriter, in chunks of 3 so more than one batch is written
+    @Test
+    void createCommentsWritesTopLevelCommentsAndCounts(){
+        Post first = savePost("First post");
+        Post second = savePost("Second post");
+        List<BatchCommentDTO> comments = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            comments.add(batchComment(i % 2 == 0 ? first : second, i));
+        }
+
+        List<Long> ids = commentService.createComments(comments);
+        entityManager.clear();
+
+        assertEquals(7, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Comment comment = commentRepository.findById(ids.get(i)).orElseThrow();
+            assertEquals(comments.get(i).getBody(), comment.getBody());
+            assertEquals(0, comment.getDepth());
+            assertEquals(CommentPath.segment(comment.getId()), comment.getPath());
+        }
+        assertEquals(4, postRepository.findById(first.getId()).orElseThrow().getCommentCount());
+        assertEquals(3, postRepository.findById(second.getId()).orElseThrow().getCommentCount());
+    }
+
+    @Test
+    void patchCommentUpdatesCommentAndPostVersion(){
+        Post post = savePost("Patched post");
+        long versionBefore = post.getVersion();
+        long commentId = commentService.createComments(List.of(batchComment(post, 1))).get(0);
+        CommentPatchDTO patch = new CommentPatchDTO();
+        patch.setBody("A patched comment body");
+
+        commentService.patchCommentById(post.getId(), commentId, patch);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals("A patched comment body", commentRepository.findById(commentId).orElseThrow().getBody());
+        assertTrue(postRepository.findById(post.getId()).orElseThrow().getVersion() > versionBefore);
+    }
+
+    // the comment change and the post touch commit together, so a failing touch leaves the comment as it was
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void patchCommentRollsBackWhenTouchFails(){
+        Post post = new TransactionTemplate(transactionManager).execute(status -> savePost("Post whose touch fails"));
+        long commentId = commentService.createComments(List.of(batchComment(post, 1))).get(0);
+        CommentPatchDTO patch = new CommentPatchDTO();
+        patch.setBody("A body that must not be kept");
+        doThrow(new IllegalStateException("touch failed")).when(postRepository).touch(eq(post.getId()), any());
+        try {
+            assertThrows(IllegalStateException.class, () -> commentService.patchCommentById(post.getId(), commentId, patch));
+
+            assertEquals("Batch comment number 1", commentRepository.findById(commentId).orElseThrow().getBody());
+        } finally {
+            commentRepository.deleteAll();
+            postRepository.deleteAll();
+            categoryRepository.deleteAll();
+        }
+    }
+
+    // the online writes and the repair agree on lastCommentAt: the created_at of the newest remaining comment
+    @Test
+    void lastCommentAtFollowsTheNewestRemainingComment(){
+        Post post = savePost("Post with activity");
+        CommentDTO first = commentService.createComment(post.getId(), commentDTO(1));
+        List<Long> batch = commentService.createComments(List.of(batchComment(post, 2)));
+        CommentDTO newest = commentService.createComment(post.getId(), commentDTO(3));
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(createdAt(newest.getId()), lastCommentAt(post));
+
+        commentService.deleteCommentById(post.getId(), newest.getId());
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(createdAt(batch.get(0)), lastCommentAt(post));
+
+        Post beforeRepair = postRepository.findById(post.getId()).orElseThrow();
+        entityManager.flush();
+        entityManager.clear();
+        postRepository.recountComments(List.of(post.getId()));
+        entityManager.flush();
+        entityManager.clear();
+        Post afterRepair = postRepository.findById(post.getId()).orElseThrow();
+        assertEquals(beforeRepair.getLastCommentAt(), afterRepair.getLastCommentAt());
+        assertEquals(beforeRepair.getCommentCount(), afterRepair.getCommentCount());
+
+        commentService.deleteCommentById(post.getId(), batch.get(0));
+        commentService.deleteCommentById(post.getId(), first.getId());
+        entityManager.flush();
+        entityManager.clear();
+        assertNull(lastCommentAt(post));
+    }
+
+    // the same DTO goes out as the SSE updated event, a reply has to stay a reply there
+    @Test
+    void updateCommentKeepsTheThreadFields(){
+        Post post = savePost("Post with a thread");
+        CommentDTO parent = commentService.createComment(post.getId(), commentDTO(1));
+        CommentDTO reply = commentDTO(2);
+        reply.setParentId(parent.getId());
+        long replyId = commentService.createComment(post.getId(), reply).getId();
+        entityManager.flush();
+
+        CommentDTO updated = commentService.updateCommentById(post.getId(), replyId, commentDTO(3));
+
+        assertEquals(parent.getId(), updated.getParentId());
+        assertEquals(1, updated.getDepth());
+        assertEquals("Comment number 3 on the post", updated.getBody());
+    }
+
+    private Instant lastCommentAt(Post post){
+        return postRepository.findById(post.getId()).orElseThrow().getLastCommentAt();
+    }
+
+    private Instant createdAt(long commentId){
+        return commentRepository.findById(commentId).orElseThrow().getCreatedAt();
+    }
+
+    private static CommentDTO commentDTO(int number){
+        CommentDTO comment = new CommentDTO();
+        comment.setName("reader" + number);
+        comment.setEmail("reader" + number + "@gmail.com");
+        comment.setBody("Comment number " + number + " on the post");
+        return comment;
+    }
+
+    private Post savePost(String title){
+        Category category = new Category();
+        category.setName("Category of " + title);
+        category.setDescription("Posts about " + title);
+        categoryRepository.save(category);
+
+        Post post = new Post();
+        post.setTitle(title);
+        post.setDescription("Description of " + title);
+        post.setCategory(category);
+        Post savedPost = postRepository.save(post);
+        entityManager.flush();
+        return savedPost;
+    }
+
+    private static BatchCommentDTO batchComment(Post post, int number){
+        BatchCommentDTO comment = new BatchCommentDTO();
+        comment.setPostId(post.getId());
+        comment.setName("reader" + number);
+        comment.setEmail("reader" + number + "@gmail.com");
+        comment.setBody("Batch comment number " + number);
+        return comment;
+    }
+}
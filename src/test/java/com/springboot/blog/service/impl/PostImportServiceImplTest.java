@@ -0,0 +1,99 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.PostImportReport;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostContentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.PostImportService;
+import com.springboot.blog.utils.CommentPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the import writes with plain JDBC (PostJdbcWriter), so every NOT NULL column of the entities has to be in its INSERTs
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Transactional
+class PostImportServiceImplTest {
+
+    @Autowired
+    private PostImportService postImportService;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PostContentRepository postContentRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Test
+    void importPostsWritesEveryLine(){
+        Category category = saveCategory();
+
+        PostImportReport report = postImportService.importPosts(ndjson(
+                postLine("Imported post one", category.getId()),
+                postLine("Imported post two", category.getId())));
+
+        assertEquals(0, report.getLinesFailed(), () -> report.getErrors().toString());
+        assertEquals(2, report.getPostsImported());
+        List<Post> posts = postRepository.findAll();
+        assertEquals(2, posts.size());
+        assertTrue(posts.stream().allMatch(post -> post.getViewCount() == 0 && post.getCommentCount() == 0));
+        assertEquals(2, postContentRepository.count());
+    }
+
+    @Test
+    void importPostsWritesCommentsAsTopLevelThreads(){
+        Category category = saveCategory();
+
+        PostImportReport report = postImportService.importPosts(ndjson(postLine("Imported post with comments", category.getId(),
+                commentJson("first"), commentJson("second"))));
+
+        assertEquals(0, report.getLinesFailed(), () -> report.getErrors().toString());
+        assertEquals(2, report.getCommentsImported());
+        List<Comment> comments = commentRepository.findAll();
+        assertEquals(2, comments.size());
+        for (Comment comment : comments) {
+            assertEquals(0, comment.getDepth());
+            assertNull(comment.getParentId());
+            assertEquals(CommentPath.segment(comment.getId()), comment.getPath());
+        }
+        assertEquals(2, postRepository.findAll().get(0).getCommentCount());
+    }
+
+    private Category saveCategory(){
+        Category category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        return categoryRepository.save(category);
+    }
+
+    private static String postLine(String title, long categoryId, String... comments){
+        return "{\"title\":\"" + title + "\",\"description\":\"Description of " + title + "\"," +
+                "\"content\":\"Content of " + title + "\",\"categoryId\":" + categoryId +
+                ",\"comments\":[" + String.join(",", comments) + "]}";
+    }
+
+    private static String commentJson(String name){
+        return "{\"name\":\"" + name + "\",\"email\":\"" + name + "@gmail.com\",\"body\":\"Imported comment " + name + "\"}";
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines){
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
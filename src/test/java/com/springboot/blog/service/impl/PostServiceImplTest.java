@@ -0,0 +1,198 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.entity.PostContent;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.CursorResponse;
+import com.springboot.blog.payload.PostDTO;
+import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostContentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.PostService;
+import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.PageCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// runs against an embedded database and counts the JDBC statements issued per service call
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.delete.chunk-size=8"
+})
+@AutoConfigureTestDatabase
+@Transactional
+class PostServiceImplTest {
+
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private PostContentRepository postContentRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp(){
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getAllPostsLoadsPageAndCommentsInFixedNumberOfStatements(){
+        Category category = saveCategory();
+        for (int i = 0; i < 50; i++) {
+            savePost(category, "Post title " + i, 2);
+        }
+        clearPersistenceContext();
+
+        PostResponse response = postService.getAllPosts(0, 50, "id", "asc", AppConstants.COUNT_EXACT);
+
+        assertEquals(50, response.getContent().size());
+        assertTrue(response.getContent().stream().allMatch(post -> post.getComments().size() == 2));
+        // one page of ids, one count and one fetch join of the posts with their comments
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void deletePostByIdRemovesCommentsWithBulkStatements(){
+        Category category = saveCategory();
+        Post post = savePost(category, "Post with comments", 7);
+        clearPersistenceContext();
+
+        postService.deletePostById(post.getId());
+
+        // below the chunk size (8): one select of comment ids, one delete each of the comments, the content and the post
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertFalse(postRepository.existsById(post.getId()));
+        assertFalse(postContentRepository.existsById(post.getId()));
+        assertEquals(0, commentRepository.count());
+    }
+
+    @Test
+    void deletePostByIdRemovesCommentsInChunks(){
+        Category category = saveCategory();
+        Post post = savePost(category, "Post with many comments", 20);
+        Post other = savePost(category, "Post that stays", 3);
+        clearPersistenceContext();
+
+        postService.deletePostById(post.getId());
+
+        // two full chunks of 8 (a select of ids and a delete by id each), then a select that finds only 4,
+        // which go with the content and the post: one delete each
+        assertEquals(2 * 2 + 1 + 3, statistics.getPrepareStatementCount());
+        assertFalse(postRepository.existsById(post.getId()));
+        assertFalse(postContentRepository.existsById(post.getId()));
+        assertEquals(3, commentRepository.count()); // only the other post's comments are left
+        assertTrue(postRepository.existsById(other.getId()));
+    }
+
+    @Test
+    void getPostsByCategoryAddsTotalOnlyWhenAskedFor(){
+        Category category = saveCategory();
+        for (int i = 0; i < 3; i++) {
+            savePost(category, "Category post " + i, 0);
+        }
+        clearPersistenceContext();
+
+        assertNull(postService.getPostSummariesByCategory(category.getId(), null, 2, "asc", AppConstants.COUNT_NONE).getTotalElement());
+        assertEquals(3, postService.getPostSummariesByCategory(category.getId(), null, 2, "asc", AppConstants.COUNT_CACHED).getTotalElement());
+
+        // written behind the cache's back: the cached total stays until it expires, the exact one sees it
+        savePost(category, "Uncounted post", 0);
+        clearPersistenceContext();
+        CursorResponse<PostDTO> cached = postService.getPostsByCategory(category.getId(), null, 2, "asc", AppConstants.COUNT_CACHED);
+        assertEquals(3, cached.getTotalElement());
+        // the page of summaries and the fetch join of the posts, no COUNT
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(4, postService.getPostsByCategory(category.getId(), null, 2, "asc", AppConstants.COUNT_EXACT).getTotalElement());
+    }
+
+    @Test
+    void getPostsAfterRejectsPageSizesOutOfRange(){
+        for (int pageSize : new int[]{0, AppConstants.MAX_PAGE_SIZE + 1, 1_000_000}) {
+            BlogAPIException ex = assertThrows(BlogAPIException.class, () -> postService.getPostsAfter(null, pageSize, "id", "asc"));
+            assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        }
+    }
+
+    @Test
+    void getPostsAfterRejectsTamperedCursors(){
+        String unknownField = new PageCursor("password", "ASC", 1, "x").encode();
+        String badValue = new PageCursor("commentCount", "ASC", 1, "1 or 1=1").encode();
+        for (String after : List.of("not a cursor", "bm90IGEgY3Vyc29y", unknownField, badValue)) {
+            BlogAPIException ex = assertThrows(BlogAPIException.class, () -> postService.getPostsAfter(after, 10, "id", "asc"));
+            assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        }
+    }
+
+    @Test
+    void getPostSummariesRejectsUnknownSortFieldWithOrWithoutFields(){
+        savePost(saveCategory(), "Summarized post", 0);
+
+        for (List<String> fields : Arrays.asList(null, List.<String>of(), List.of("id", "title"))) {
+            BlogAPIException ex = assertThrows(BlogAPIException.class,
+                    () -> postService.getPostSummaries(0, 10, "noSuchField", "asc", fields));
+            assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        }
+    }
+
+    private Category saveCategory(){
+        Category category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        return categoryRepository.save(category);
+    }
+
+    private Post savePost(Category category, String title, int numberOfComments){
+        Post post = new Post();
+        post.setTitle(title);
+        post.setDescription("Description of " + title);
+        post.setCategory(category);
+        for (int i = 0; i < numberOfComments; i++) {
+            Comment comment = new Comment();
+            comment.setName("reader" + i);
+            comment.setEmail("reader" + i + "@gmail.com");
+            comment.setBody("Comment number " + i + " on " + title);
+            comment.setPost(post);
+            post.getComments().add(comment);
+        }
+        Post savedPost = postRepository.save(post);
+        postContentRepository.save(new PostContent(savedPost, "Content of " + title));
+        return savedPost;
+    }
+
+    // flush pending inserts, detach everything and reset the statement counter
+    private void clearPersistenceContext(){
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+}
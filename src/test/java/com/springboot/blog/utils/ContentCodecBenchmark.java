@@ -0,0 +1,108 @@
+package com.springboot.blog.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+Measures ContentCodec on a corpus of markdown files, split into one "post" per heading (lines starting with #).
+Prints the stored size as a share of the raw UTF-8 size once, then times compressing and decompressing the
+whole corpus; divide by the printed section count for the time per post.
+Not a unit test, run it with (for example on a checkout of nodejs/node, doc/api):
+    mvn test-compile exec:java -Dexec.mainClass=com.springboot.blog.utils.ContentCodecBenchmark -Dexec.classpathScope=test -Dcorpus=/path/to/node/doc/api
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentCodecBenchmark {
+
+    private List<String> sections;
+    private List<byte[]> stored;
+
+    @Setup
+    public void setUp(){
+        sections = loadSections(Paths.get(System.getProperty("corpus", ".")));
+        stored = new ArrayList<>(sections.size());
+        long raw = 0;
+        long compressed = 0;
+        for (String section : sections) {
+            byte[] bytes = ContentCodec.compress(section);
+            stored.add(bytes);
+            raw += section.getBytes(StandardCharsets.UTF_8).length;
+            compressed += bytes.length;
+        }
+        System.out.printf("%n%d sections, %d bytes raw, %d bytes stored (%.1f%%)%n",
+                sections.size(), raw, compressed, raw == 0 ? 0.0 : 100.0 * compressed / raw);
+    }
+
+    @Benchmark
+    public void compress(Blackhole blackhole){
+        for (String section : sections) {
+            blackhole.consume(ContentCodec.compress(section));
+        }
+    }
+
+    @Benchmark
+    public void decompress(Blackhole blackhole){
+        for (byte[] bytes : stored) {
+            blackhole.consume(ContentCodec.decompress(bytes));
+        }
+    }
+
+    static List<String> loadSections(Path corpus){
+        List<String> sections = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(corpus)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".md")).sorted().toList()) {
+                StringBuilder section = new StringBuilder();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if(line.startsWith("#") && section.length() > 0){
+                        sections.add(section.toString());
+                        section.setLength(0);
+                    }
+                    section.append(line).append('\n');
+                }
+                if(section.length() > 0){
+                    sections.add(section.toString());
+                }
+            }
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+        if(sections.isEmpty()){
+            throw new IllegalStateException("No .md files under " + corpus.toAbsolutePath() + ", pass -Dcorpus=<dir>");
+        }
+        return sections;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ContentCodecBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-Dcorpus=" + System.getProperty("corpus", "."))
+                .build()).run();
+    }
+}